@@ -0,0 +1,23 @@
+package com.daniel.backend.audit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "audit.retention")
+public class AuditRetentionProperties {
+
+    // Newest entries kept per user for actions without their own limit.
+    private int maxPerUser = 100;
+
+    // Action types with their own per-user limit, e.g. PUBLIC_FILE_ACCESS=500.
+    private Map<String, Integer> maxPerUserByAction = new HashMap<>();
+
+    // Users trimmed per DELETE statement.
+    private int userBatchSize = 500;
+}
@@ -1,34 +1,117 @@
 package com.daniel.backend.audit.controller;
 
+import com.daniel.backend.audit.dto.ActivityGranularity;
+import com.daniel.backend.audit.dto.ActivityStatDto;
+import com.daniel.backend.audit.dto.AuditExportFormat;
 import com.daniel.backend.audit.dto.AuditLogDto;
-import com.daniel.backend.audit.entity.AuditLog;
+import com.daniel.backend.audit.dto.AuditLogPageDto;
+import com.daniel.backend.audit.service.AuditExportService;
 import com.daniel.backend.audit.service.AuditLogService;
+import com.daniel.backend.audit.service.AuditRollupService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/activity")
 @RequiredArgsConstructor
 public class AuditLogController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final AuditLogService auditLogService;
+    private final AuditExportService auditExportService;
+    private final AuditRollupService auditRollupService;
 
+    // Pages are returned as plain arrays; the cursor for the next page, if any, is in X-Next-Cursor.
     @GetMapping("/all")
-    public List<AuditLogDto> getAllLogs(HttpServletRequest request) {
+    public ResponseEntity<List<AuditLogDto>> getAllLogs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) Long fileId,
+            HttpServletRequest request
+    ) {
         String email = request.getUserPrincipal().getName();
-        return auditLogService.getAllLogsForUser(email);
+        return page(() -> auditLogService.getLogs(email, null, action, fileId, cursor, limit));
     }
 
     @GetMapping
-    public List<AuditLogDto> getLogsByPeriod(
+    public ResponseEntity<List<AuditLogDto>> getLogsByPeriod(
             @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) Long fileId,
+            HttpServletRequest request
+    ) {
+        String email = request.getUserPrincipal().getName();
+        LocalDateTime from = LocalDateTime.now().minusDays(days);
+        return page(() -> auditLogService.getLogs(email, from, action, fileId, cursor, limit));
+    }
+
+    // Served from the daily rollup, so the cost depends on the range, not on how many events it holds.
+    @GetMapping("/stats")
+    public ResponseEntity<List<ActivityStatDto>> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") ActivityGranularity granularity,
+            @RequestParam(required = false) List<String> action,
             HttpServletRequest request
     ) {
         String email = request.getUserPrincipal().getName();
-        return auditLogService.getLogsForPeriod(email, days);
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(auditRollupService.getStats(email, start, end, granularity, action));
     }
 
+    // Written straight to the response one keyset page at a time, so memory stays flat for any export size.
+    @GetMapping("/export")
+    public void exportLogs(
+            @RequestParam(defaultValue = "NDJSON") AuditExportFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<String> action,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        String email = request.getUserPrincipal().getName();
+        String fileName = "activity." + format.getExtension() + (gzip ? ".gz" : "");
+
+        response.setContentType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        auditExportService.export(email, from, to, action, format, out);
+        out.close();
+    }
+
+    private ResponseEntity<List<AuditLogDto>> page(Supplier<AuditLogPageDto> query) {
+        try {
+            AuditLogPageDto page = query.get();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.daniel.backend.audit.dto;
+
+public enum ActivityGranularity {
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    // Unit passed to date_trunc
+    private final String unit;
+
+    ActivityGranularity(String unit) {
+        this.unit = unit;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+}
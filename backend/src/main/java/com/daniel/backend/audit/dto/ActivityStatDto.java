@@ -0,0 +1,17 @@
+package com.daniel.backend.audit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityStatDto {
+    // First day of the day/week/month bucket
+    private LocalDate period;
+    private String action;
+    private long count;
+}
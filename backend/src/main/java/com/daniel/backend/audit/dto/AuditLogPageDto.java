@@ -0,0 +1,14 @@
+package com.daniel.backend.audit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AuditLogPageDto {
+    private List<AuditLogDto> items;
+    // Null on the last page.
+    private String nextCursor;
+}
@@ -0,0 +1,40 @@
+package com.daniel.backend.audit.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Per-user, per-action event counts for one day; maintained by AuditRollupService.
+@Entity
+@Table(name = "audit_activity_daily")
+@IdClass(AuditActivityDaily.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditActivityDaily {
+
+    @Id
+    @Column(name = "performed_by")
+    private String performedBy;
+
+    @Id
+    private String action;
+
+    @Id
+    @Column(name = "activity_day")
+    private LocalDate activityDay;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String performedBy;
+        private String action;
+        private LocalDate activityDay;
+    }
+}
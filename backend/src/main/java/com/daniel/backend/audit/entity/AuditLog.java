@@ -6,6 +6,11 @@
     import java.time.LocalDateTime;
     
     @Entity
+    @Table(indexes = {
+            @Index(name = "idx_audit_log_user_time", columnList = "performed_by, timestamp DESC, id DESC"),
+            @Index(name = "idx_audit_log_user_action_time", columnList = "performed_by, action, timestamp DESC, id DESC"),
+            @Index(name = "idx_audit_log_user_file_time", columnList = "performed_by, file_id, timestamp DESC, id DESC")
+    })
     @Data
     @Builder
     @NoArgsConstructor
@@ -13,7 +18,8 @@
     public class AuditLog {
     
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_seq")
+        @SequenceGenerator(name = "audit_log_seq", sequenceName = "audit_log_seq", allocationSize = 50)
         private Long id;
 
         @Column(name = "file_id")
@@ -28,5 +34,7 @@
     
         private String performedBy;
     
+        // Partition key of audit_log (see AuditPartitionService)
+        @Column(nullable = false)
         private LocalDateTime timestamp;
     }
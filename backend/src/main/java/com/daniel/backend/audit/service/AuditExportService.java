@@ -0,0 +1,226 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.dto.AuditExportFormat;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streams a user's audit history page by page. Each page is a keyset query on
+ * (timestamp, id) in its own short read-only transaction, and is written to the
+ * response only after the connection is back in the pool, so a slow client never
+ * holds one of the few pooled connections. Memory stays at one page for any export size.
+ */
+@Service
+public class AuditExportService {
+
+    private static final String[] COLUMNS = {"id", "timestamp", "action", "performedBy", "fileId", "fileName", "description"};
+
+    private static final RowMapper<ExportRow> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        long fileId = rs.getLong("file_id");
+        Long nullableFileId = rs.wasNull() ? null : fileId;
+        return new ExportRow(
+                rs.getLong("id"),
+                timestamp != null ? timestamp.toLocalDateTime() : null,
+                rs.getString("action"),
+                rs.getString("performed_by"),
+                nullableFileId,
+                rs.getString("file_name"),
+                rs.getString("description")
+        );
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    public AuditExportService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${audit.export.page-size}") int pageSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+    }
+
+    public void export(
+            String email,
+            LocalDateTime from,
+            LocalDateTime to,
+            Collection<String> actions,
+            AuditExportFormat format,
+            OutputStream out
+    ) throws IOException {
+        RowWriter writer = format == AuditExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+
+        ExportRow last = null;
+        List<ExportRow> page;
+        do {
+            page = fetchPage(email, from, to, actions, last);
+            for (ExportRow row : page) {
+                writer.write(row);
+            }
+            if (!page.isEmpty()) {
+                last = page.get(page.size() - 1);
+            }
+        } while (page.size() == pageSize);
+
+        writer.finish();
+    }
+
+    private List<ExportRow> fetchPage(
+            String email,
+            LocalDateTime from,
+            LocalDateTime to,
+            Collection<String> actions,
+            ExportRow after
+    ) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, \"timestamp\", action, performed_by, file_id, file_name, description " +
+                "FROM audit_log WHERE performed_by = :email");
+        MapSqlParameterSource params = new MapSqlParameterSource("email", email);
+
+        if (from != null) {
+            sql.append(" AND \"timestamp\" >= :from");
+            params.addValue("from", Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND \"timestamp\" < :to");
+            params.addValue("to", Timestamp.valueOf(to));
+        }
+        if (actions != null && !actions.isEmpty()) {
+            sql.append(" AND action IN (:actions)");
+            params.addValue("actions", actions);
+        }
+        if (after != null) {
+            sql.append(" AND (\"timestamp\", id) < (:afterTimestamp, :afterId)");
+            params.addValue("afterTimestamp", Timestamp.valueOf(after.timestamp()));
+            params.addValue("afterId", after.id());
+        }
+        sql.append(" ORDER BY \"timestamp\" DESC, id DESC LIMIT :limit");
+        params.addValue("limit", pageSize);
+
+        return readOnlyTransaction.execute(status -> jdbcTemplate.query(sql.toString(), params, ROW_MAPPER));
+    }
+
+    private record ExportRow(
+            long id,
+            LocalDateTime timestamp,
+            String action,
+            String performedBy,
+            Long fileId,
+            String fileName,
+            String description
+    ) {}
+
+    private interface RowWriter {
+        void write(ExportRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField(COLUMNS[0], row.id());
+            generator.writeStringField(COLUMNS[1], timestamp(row));
+            generator.writeStringField(COLUMNS[2], row.action());
+            generator.writeStringField(COLUMNS[3], row.performedBy());
+            if (row.fileId() == null) {
+                generator.writeNullField(COLUMNS[4]);
+            } else {
+                generator.writeNumberField(COLUMNS[4], row.fileId());
+            }
+            generator.writeStringField(COLUMNS[5], row.fileName());
+            generator.writeStringField(COLUMNS[6], row.description());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write(String.join(",", COLUMNS));
+            this.writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            writer.write(String.valueOf(row.id()));
+            writer.write(',');
+            writer.write(csv(timestamp(row)));
+            writer.write(',');
+            writer.write(csv(row.action()));
+            writer.write(',');
+            writer.write(csv(row.performedBy()));
+            writer.write(',');
+            writer.write(csv(row.fileId() != null ? row.fileId().toString() : null));
+            writer.write(',');
+            writer.write(csv(row.fileName()));
+            writer.write(',');
+            writer.write(csv(row.description()));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static String timestamp(ExportRow row) {
+        return row.timestamp() != null ? row.timestamp().toString() : null;
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
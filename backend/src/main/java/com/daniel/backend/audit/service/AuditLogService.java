@@ -1,24 +1,37 @@
 package com.daniel.backend.audit.service;
 
 import com.daniel.backend.audit.dto.AuditLogDto;
+import com.daniel.backend.audit.dto.AuditLogPageDto;
 import com.daniel.backend.audit.entity.AuditLog;
-import com.daniel.backend.audit.repository.AuditLogRepo;
 import com.daniel.backend.file.entity.Files;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class AuditLogService {
 
-    private final AuditLogRepo repo;
-    private static final int MAX_LOGS_PER_USER = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final AuditLogWriter auditLogWriter;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
     public void log(String action, String performedBy, Files file, String description) {
-        AuditLog log = AuditLog.builder()
+        logAll(List.of(entry(action, performedBy, file, description)));
+    }
+
+    public AuditLog entry(String action, String performedBy, Files file, String description) {
+        return AuditLog.builder()
                 .action(action)
                 .performedBy(performedBy)
                 .fileId(file != null ? file.getId() : null)
@@ -26,41 +39,85 @@ public class AuditLogService {
                 .description(description)
                 .timestamp(LocalDateTime.now())
                 .build();
-        repo.save(log);
+    }
 
-        long count = repo.countByPerformedBy(performedBy);
+    // Written asynchronously in batches by AuditLogWriter; the caller does not wait for the insert.
+    public void logAll(List<AuditLog> entries) {
+        auditLogWriter.submit(entries);
+    }
+
+    @Transactional(readOnly = true)
+    public AuditLogPageDto getLogs(
+            String email,
+            LocalDateTime from,
+            String action,
+            Long fileId,
+            String cursor,
+            int limit
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, \"timestamp\", action, performed_by, description, file_name " +
+                "FROM audit_log WHERE performed_by = :email");
+        MapSqlParameterSource params = new MapSqlParameterSource("email", email)
+                .addValue("limit", pageSize + 1);
 
-        if (count > MAX_LOGS_PER_USER) {
-            long excess = count - MAX_LOGS_PER_USER;
-            List<AuditLog> oldestLogs = repo.findOldestLogsForUser(performedBy, (int) excess);
-            repo.deleteAll(oldestLogs);
+        if (from != null) {
+            sql.append(" AND \"timestamp\" >= :from");
+            params.addValue("from", Timestamp.valueOf(from));
         }
-    }
+        if (action != null && !action.isBlank()) {
+            sql.append(" AND action = :action");
+            params.addValue("action", action);
+        }
+        if (fileId != null) {
+            sql.append(" AND file_id = :fileId");
+            params.addValue("fileId", fileId);
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor position = Cursor.decode(cursor);
+            // Row comparison matches the (timestamp DESC, id DESC) index order, so a page starts with an index seek.
+            sql.append(" AND (\"timestamp\", id) < (:cursorTimestamp, :cursorId)");
+            params.addValue("cursorTimestamp", Timestamp.valueOf(position.timestamp()));
+            params.addValue("cursorId", position.id());
+        }
+        sql.append(" ORDER BY \"timestamp\" DESC, id DESC LIMIT :limit");
 
-    public List<AuditLogDto> getAllLogsForUser(String email) {
-        return repo.findByPerformedByOrderByTimestampDesc(email)
-                .stream()
-                .map(log -> new AuditLogDto(
-                        log.getAction(),
-                        log.getPerformedBy(),
-                        log.getDescription(),
-                        log.getTimestamp(),
-                        log.getFileName()
-                ))
-                .toList();
+        List<Cursor> positions = new ArrayList<>();
+        List<AuditLogDto> items = new ArrayList<>(jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
+            LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+            positions.add(new Cursor(timestamp, rs.getLong("id")));
+            return new AuditLogDto(
+                    rs.getString("action"),
+                    rs.getString("performed_by"),
+                    rs.getString("description"),
+                    timestamp,
+                    rs.getString("file_name")
+            );
+        }));
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items.remove(pageSize);
+            nextCursor = positions.get(pageSize - 1).encode();
+        }
+        return new AuditLogPageDto(items, nextCursor);
     }
 
-    public List<AuditLogDto> getLogsForPeriod(String email, int days) {
-        LocalDateTime from = LocalDateTime.now().minusDays(days);
-        return repo.findRecentActions(email, from)
-                .stream()
-                .map(log -> new AuditLogDto(
-                        log.getAction(),
-                        log.getPerformedBy(),
-                        log.getDescription(),
-                        log.getTimestamp(),
-                        log.getFileName()
-                ))
-                .toList();
+    record Cursor(LocalDateTime timestamp, long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((timestamp + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
     }
 }
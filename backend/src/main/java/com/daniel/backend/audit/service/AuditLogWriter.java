@@ -0,0 +1,157 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.entity.AuditLog;
+import com.daniel.backend.audit.repository.AuditLogRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for audit entries. Callers only enqueue; a single writer thread
+ * saves them in batches, which Hibernate and the driver turn into multi-row inserts.
+ * When the queue is full the caller writes its own entries (nothing is dropped), and
+ * whatever is still queued at shutdown is written before the datasource goes away.
+ * Each batch also updates the daily activity rollup in the same transaction.
+ */
+@Component
+public class AuditLogWriter {
+
+    private final AuditLogRepo repo;
+    private final AuditRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<AuditLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Counter overflows;
+    private final Counter failedEntries;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditLogWriter(
+            AuditLogRepo repo,
+            AuditRollupService rollupService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${audit.writer.queue-capacity}") int queueCapacity,
+            @Value("${audit.writer.batch-size}") int batchSize,
+            @Value("${audit.writer.flush-interval-ms}") long flushIntervalMs
+    ) {
+        this.repo = repo;
+        this.rollupService = rollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Overflow writes run in afterCommit, where the caller's transaction is finished but still bound;
+        // joining it would silently never commit the rows.
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+
+        Gauge.builder("audit.queue.size", queue, BlockingQueue::size)
+                .description("Audit entries waiting to be written")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("audit.queue.overflow")
+                .description("Entries written by the caller because the queue was full")
+                .register(meterRegistry);
+        this.failedEntries = Counter.builder("audit.write.failed")
+                .description("Entries lost because their batch could not be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform().name("audit-writer").daemon(true).start(this::run);
+    }
+
+    // Entries of a transaction are only written once it commits, as they were when saved inline.
+    public void submit(List<AuditLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entries);
+                }
+            });
+        } else {
+            enqueue(entries);
+        }
+    }
+
+    private void enqueue(List<AuditLog> entries) {
+        List<AuditLog> rejected = new ArrayList<>();
+        for (AuditLog entry : entries) {
+            if (!running || !queue.offer(entry)) {
+                rejected.add(entry);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            if (running) {
+                overflows.increment(rejected.size());
+            }
+            write(rejected);
+        }
+    }
+
+    private void run() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() throws InterruptedException {
+        // Not interrupted: a batch in flight finishes, and the poll returns within one flush interval.
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+
+        List<AuditLog> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            write(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repo.saveAll(batch);
+                rollupService.record(batch);
+            });
+        } catch (Exception e) {
+            failedEntries.increment(batch.size());
+            System.err.println("Failed to write " + batch.size() + " audit entries: " + e.getMessage());
+        }
+    }
+}
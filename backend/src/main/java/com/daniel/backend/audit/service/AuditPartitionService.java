@@ -0,0 +1,150 @@
+package com.daniel.backend.audit.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps audit_log range-partitioned by month on "timestamp". Hibernate creates the table
+ * as a plain one (ddl-auto=update), so on first start it is converted in place; after
+ * that partitions are created ahead of time and whole months past the retention window
+ * are dropped, which is a catalog change rather than a row-by-row delete.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class AuditPartitionService {
+
+    private static final String TABLE = "audit_log";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'uuuu'm'MM");
+
+    // Feed indexes: each serves one filter combination of /activity and its keyset pages in index order.
+    private static final List<String> FEED_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_user_time ON audit_log (performed_by, \"timestamp\" DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_user_action_time ON audit_log (performed_by, action, \"timestamp\" DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_user_file_time ON audit_log (performed_by, file_id, \"timestamp\" DESC, id DESC)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public AuditPartitionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${audit.partitions.months-ahead}") int monthsAhead,
+            @Value("${audit.partitions.retention-months}") int retentionMonths
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (!isPartitioned()) {
+            transactionTemplate.executeWithoutResult(status -> convertToPartitioned());
+        }
+        // Indexes on the parent cascade to every partition, including ones created later.
+        FEED_INDEXES.forEach(jdbcTemplate::execute);
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${audit.partitions.cron}")
+    public void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+
+        if (retentionMonths <= 0) {
+            return;
+        }
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String partition : partitionNames()) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                try {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                } catch (Exception e) {
+                    System.err.println("Failed to drop audit partition " + partition + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c " +
+                "WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace",
+                String.class, TABLE);
+        return kinds.contains("p");
+    }
+
+    // Runs in one transaction: writers wait on the lock and nothing is lost if any step fails.
+    private void convertToPartitioned() {
+        jdbcTemplate.execute("LOCK TABLE audit_log IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("UPDATE audit_log SET \"timestamp\" = now() WHERE \"timestamp\" IS NULL");
+        jdbcTemplate.execute("ALTER TABLE audit_log RENAME TO audit_log_unpartitioned");
+        jdbcTemplate.execute("CREATE TABLE audit_log (LIKE audit_log_unpartitioned INCLUDING DEFAULTS) " +
+                "PARTITION BY RANGE (\"timestamp\")");
+        jdbcTemplate.execute("ALTER TABLE audit_log ALTER COLUMN \"timestamp\" SET NOT NULL");
+
+        LocalDate oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(\"timestamp\")::date FROM audit_log_unpartitioned", LocalDate.class);
+        LocalDate newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(\"timestamp\")::date FROM audit_log_unpartitioned", LocalDate.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+        YearMonth last = newest != null && YearMonth.from(newest).isAfter(YearMonth.now()) ? YearMonth.from(newest) : YearMonth.now();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+
+        jdbcTemplate.execute("INSERT INTO audit_log SELECT * FROM audit_log_unpartitioned");
+        jdbcTemplate.execute("DROP TABLE audit_log_unpartitioned");
+        // A primary key on a partitioned table has to include the partition column.
+        jdbcTemplate.execute("ALTER TABLE audit_log ADD PRIMARY KEY (id, \"timestamp\")");
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF audit_log FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits i " +
+                "JOIN pg_class parent ON parent.oid = i.inhparent " +
+                "JOIN pg_class child ON child.oid = i.inhrelid " +
+                "WHERE parent.relname = ? AND parent.relnamespace = current_schema()::regnamespace",
+                String.class, TABLE);
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_" + month.format(PARTITION_SUFFIX);
+    }
+
+    // Partitions not created by this service (unexpected names) are left alone.
+    static YearMonth monthOf(String partitionName) {
+        String prefix = TABLE + "_";
+        if (!partitionName.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(prefix.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
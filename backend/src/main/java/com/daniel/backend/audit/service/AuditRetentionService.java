@@ -0,0 +1,104 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.config.AuditRetentionProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trims audit_log to the newest entries per user, in the background instead of on every
+ * write. Users are walked in keyset batches and each batch is trimmed by one windowed
+ * DELETE per limit, so the cost no longer depends on how often a user is logged.
+ */
+@Service
+public class AuditRetentionService {
+
+    private static final String USERS_SQL =
+            "SELECT DISTINCT performed_by FROM audit_log " +
+            "WHERE performed_by > ? ORDER BY performed_by LIMIT ?";
+
+    private static final String TRIM_SQL =
+            "DELETE FROM audit_log WHERE id IN (" +
+            "SELECT id FROM (" +
+            "SELECT id, ROW_NUMBER() OVER (PARTITION BY performed_by ORDER BY \"timestamp\" DESC, id DESC) AS rn " +
+            "FROM audit_log WHERE performed_by IN (:users) %s" +
+            ") ranked WHERE rn > :keep)";
+
+    // Each DELETE is its own statement, so a retried batch only redoes what did not commit.
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private AuditRetentionProperties properties;
+
+    @Scheduled(cron = "${audit.retention.cron}")
+    public void trim() {
+        String after = "";
+
+        while (true) {
+            List<String> users = jdbcTemplate.queryForList(USERS_SQL, String.class, after, properties.getUserBatchSize());
+            if (users.isEmpty()) {
+                return;
+            }
+            if (!trimWithRetry(users, after)) {
+                // Stopping here keeps the walk in order; the next run starts over and reaches this batch again.
+                return;
+            }
+            after = users.get(users.size() - 1);
+        }
+    }
+
+    private boolean trimWithRetry(List<String> users, String after) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                trimUsers(users);
+                return true;
+            } catch (Exception e) {
+                System.err.println("Audit retention attempt " + attempt + "/" + MAX_ATTEMPTS + " failed for " + users.size()
+                        + " users after '" + after + "': " + e.getMessage());
+            }
+        }
+        System.err.println("Audit retention stopped after '" + after + "'; remaining users are trimmed on the next run");
+        return false;
+    }
+
+    int trimUsers(List<String> users) {
+        Map<String, Integer> actionLimits = properties.getMaxPerUserByAction();
+        int deleted = 0;
+
+        // Actions with their own limit are ranked separately so they neither crowd out nor count toward the rest.
+        for (Map.Entry<String, Integer> limit : actionLimits.entrySet()) {
+            deleted += namedParameterJdbcTemplate.update(
+                    TRIM_SQL.formatted("AND action = :action"),
+                    new MapSqlParameterSource()
+                            .addValue("users", users)
+                            .addValue("action", limit.getKey())
+                            .addValue("keep", limit.getValue())
+            );
+        }
+
+        MapSqlParameterSource defaults = new MapSqlParameterSource()
+                .addValue("users", users)
+                .addValue("keep", properties.getMaxPerUser());
+        if (actionLimits.isEmpty()) {
+            deleted += namedParameterJdbcTemplate.update(TRIM_SQL.formatted(""), defaults);
+        } else {
+            deleted += namedParameterJdbcTemplate.update(
+                    TRIM_SQL.formatted("AND (action IS NULL OR action NOT IN (:actions))"),
+                    defaults.addValue("actions", actionLimits.keySet())
+            );
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,133 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.dto.ActivityGranularity;
+import com.daniel.backend.audit.dto.ActivityStatDto;
+import com.daniel.backend.audit.entity.AuditLog;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps audit_activity_daily, a count per (user, action, day), in step with audit_log.
+ * Counts are added in the same transaction that inserts the batch, so the rollup never
+ * drifts from what was written, and retention trimming of raw rows does not affect it.
+ * Stats read at most one row per action and day in the range, however many events there were.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class AuditRollupService {
+
+    private static final String UPSERT =
+            "INSERT INTO audit_activity_daily (performed_by, action, activity_day, event_count) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (performed_by, action, activity_day) " +
+            "DO UPDATE SET event_count = audit_activity_daily.event_count + EXCLUDED.event_count";
+
+    // Rows are upserted in a fixed order, so two concurrent batches cannot deadlock on each other.
+    private static final Comparator<DayKey> KEY_ORDER = Comparator.comparing(DayKey::performedBy)
+            .thenComparing(DayKey::action)
+            .thenComparing(DayKey::day);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuditRollupService(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Seeds the rollup once from whatever history audit_log still holds. Runs before the
+    // writer starts (it depends on this bean), so no batch can be counted twice.
+    @PostConstruct
+    public void backfill() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE audit_activity_daily IN EXCLUSIVE MODE");
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM audit_activity_daily)", Boolean.class);
+            if (Boolean.TRUE.equals(empty)) {
+                jdbcTemplate.update(
+                        "INSERT INTO audit_activity_daily (performed_by, action, activity_day, event_count) " +
+                        "SELECT performed_by, action, \"timestamp\"::date, COUNT(*) FROM audit_log " +
+                        "WHERE performed_by IS NOT NULL AND action IS NOT NULL " +
+                        "GROUP BY performed_by, action, \"timestamp\"::date");
+            }
+        });
+    }
+
+    // Must be called inside the transaction that saves the batch.
+    public void record(List<AuditLog> batch) {
+        Map<DayKey, Long> counts = aggregate(batch);
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(
+                new Object[]{key.performedBy(), key.action(), Date.valueOf(key.day()), count}));
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ActivityStatDto> getStats(
+            String email,
+            LocalDate from,
+            LocalDate to,
+            ActivityGranularity granularity,
+            Collection<String> actions
+    ) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT date_trunc(:unit, activity_day)::date AS period, action, SUM(event_count) AS total " +
+                "FROM audit_activity_daily " +
+                "WHERE performed_by = :email AND activity_day BETWEEN :from AND :to");
+        MapSqlParameterSource params = new MapSqlParameterSource("email", email)
+                .addValue("unit", granularity.getUnit())
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to));
+
+        if (actions != null && !actions.isEmpty()) {
+            sql.append(" AND action IN (:actions)");
+            params.addValue("actions", actions);
+        }
+        sql.append(" GROUP BY period, action ORDER BY period, action");
+
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> new ActivityStatDto(
+                rs.getDate("period").toLocalDate(),
+                rs.getString("action"),
+                rs.getLong("total")
+        ));
+    }
+
+    static Map<DayKey, Long> aggregate(List<AuditLog> batch) {
+        Map<DayKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        for (AuditLog entry : batch) {
+            if (entry.getPerformedBy() == null || entry.getAction() == null || entry.getTimestamp() == null) {
+                continue;
+            }
+            DayKey key = new DayKey(entry.getPerformedBy(), entry.getAction(), entry.getTimestamp().toLocalDate());
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    record DayKey(String performedBy, String action, LocalDate day) {
+    }
+}
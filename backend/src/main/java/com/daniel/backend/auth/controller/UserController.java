@@ -2,11 +2,13 @@ package com.daniel.backend.auth.controller;
 
 import com.daniel.backend.auth.dto.*;
 import com.daniel.backend.auth.entity.Users;
+import com.daniel.backend.auth.filter.JwtFilter;
 import com.daniel.backend.auth.repository.UserRepo;
 import com.daniel.backend.auth.service.AuthenticationService;
 import com.daniel.backend.auth.service.DomainValidationService;
-import com.daniel.backend.auth.service.JwtService;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,9 +26,6 @@ public class UserController {
     @Autowired
     private UserRepo repo;
 
-    @Autowired
-    private JwtService jwtService;
-
     @PostMapping("/register")
     public ResponseEntity<String> register(@RequestBody RegisterRequest request) {
         return ResponseEntity.ok(
@@ -79,10 +78,12 @@ public class UserController {
 
     @PostMapping("/refresh-token")
     public ResponseEntity<TokenResponse> refreshToken(@RequestBody TokenRefreshRequest request) {
-        String newAccessToken = authService.refreshAccessToken(request.getRefreshToken());
-        String email = authService.extractEmailFromRefreshToken(request.getRefreshToken());
-        String newRefreshToken = authService.generateRefreshToken(email);
-        return ResponseEntity.ok(new TokenResponse(newAccessToken, newRefreshToken));
+        return ResponseEntity.ok(authService.refreshTokens(request.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestBody TokenRefreshRequest request) {
+        return ResponseEntity.ok(authService.logout(request.getRefreshToken()));
     }
 
     @DeleteMapping("/delete-account")
@@ -91,10 +92,13 @@ public class UserController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<UserProfileResponse> getProfile(@RequestHeader("Authorization") String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String email = jwtService.extractEmail(token); 
-        Users user = repo.findByEmail(email)
+    public ResponseEntity<UserProfileResponse> getProfile(
+            @RequestAttribute(name = JwtFilter.CLAIMS_ATTRIBUTE, required = false) Claims claims
+    ) {
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Users user = repo.findByEmail(claims.getSubject())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         return ResponseEntity.ok(new UserProfileResponse(
@@ -35,4 +35,8 @@ public class Users {
     private String passwordResetToken;
     @Column(name = "password_reset_expires_at")
     private LocalDateTime passwordResetExpiresAt;
+
+    // Carried in every JWT; bumping it revokes all tokens issued before (see TokenVersionService)
+    @Column(name = "token_version", nullable = false, columnDefinition = "bigint default 0")
+    private long tokenVersion = 0;
 }
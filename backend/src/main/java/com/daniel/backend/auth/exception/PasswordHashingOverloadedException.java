@@ -0,0 +1,16 @@
+package com.daniel.backend.auth.exception;
+
+// Thrown when the password hashing pool is saturated; answered with 503 and Retry-After.
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(int retryAfterSeconds) {
+        super("Server is busy, please try again shortly.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
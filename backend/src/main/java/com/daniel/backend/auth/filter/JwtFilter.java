@@ -1,8 +1,11 @@
 package com.daniel.backend.auth.filter;
 
+import com.daniel.backend.auth.model.AuthenticatedUser;
 import com.daniel.backend.auth.service.JwtService;
+import com.daniel.backend.auth.service.TokenVersionService;
 import com.daniel.backend.auth.service.UserDetailsServiceImpl;
-import com.daniel.backend.file.entity.Files;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,43 +14,82 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    // Verified claims of the request's access token, so nothing downstream has to parse it again.
+    public static final String CLAIMS_ATTRIBUTE = "com.daniel.backend.auth.filter.JwtFilter.claims";
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String email = null;
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            email = jwtService.extractEmail(token);
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Claims claims = null;
+            try {
+                claims = jwtService.parseToken(authHeader.substring(7));
+            } catch (JwtException | IllegalArgumentException e) {
+                // Invalid or expired: the request continues unauthenticated and protected endpoints answer 401.
+            }
 
+            if (claims != null && claims.getSubject() != null) {
+                UsernamePasswordAuthenticationToken authToken = authenticate(claims);
+                if (authToken != null) {
+                    authToken.setDetails(new WebAuthenticationDetailsSource()
+                            .buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+                }
+            }
         }
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-           UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-            if (jwtService.validateToken(token, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource()
-                        .buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        filterChain.doFilter(request, response);
+    }
+
+    // Signed claims are trusted as long as their version is current, which is usually a cache hit.
+    // Tokens issued before user ids were embedded still go through a user lookup until they expire.
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims) {
+        // Refresh tokens (the ones with a jti) are only good for /auth/refresh-token.
+        if (claims.getId() != null) {
+            return null;
+        }
+        Long userId = jwtService.extractUserId(claims);
+        if (userId != null) {
+            if (!tokenVersionService.isCurrent(userId, jwtService.extractTokenVersion(claims))) {
+                return null;
             }
+            AuthenticatedUser principal = new AuthenticatedUser(userId, claims.getSubject());
+            return new UsernamePasswordAuthenticationToken(principal, null, List.of());
         }
 
-        filterChain.doFilter(request, response);
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        if (!jwtService.validateToken(claims, userDetails)) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
     }
 }
\ No newline at end of file
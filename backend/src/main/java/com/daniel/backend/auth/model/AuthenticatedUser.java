@@ -0,0 +1,12 @@
+package com.daniel.backend.auth.model;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+// Principal built from verified token claims; getName() is the email, as with UserModel.
+public record AuthenticatedUser(Long id, String email) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
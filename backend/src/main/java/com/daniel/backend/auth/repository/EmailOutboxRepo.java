@@ -0,0 +1,9 @@
+package com.daniel.backend.auth.repository;
+
+import com.daniel.backend.auth.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EmailOutboxRepo extends JpaRepository<EmailOutbox, Long> {
+}
@@ -3,8 +3,12 @@ package com.daniel.backend.auth.repository;
 
 import com.daniel.backend.auth.entity.Users;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +17,9 @@ public interface UserRepo extends JpaRepository<Users, Long> {
     Optional<Users> findByUsername(String username);
 
     Optional<Users> findByEmail(String email);
+
+    List<Users> findAllByEmailIn(Collection<String> emails);
+
+    @Query("SELECT u.tokenVersion FROM Users u WHERE u.id = :id AND u.verified = true")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
 }
\ No newline at end of file
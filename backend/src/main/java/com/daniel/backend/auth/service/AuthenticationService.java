@@ -3,10 +3,14 @@ package com.daniel.backend.auth.service;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.auth.dto.*;
 import com.daniel.backend.auth.entity.Users;
+import com.daniel.backend.auth.exception.PasswordHashingOverloadedException;
 import com.daniel.backend.auth.repository.UserRepo;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -22,7 +26,7 @@ public class AuthenticationService {
     private JwtService jwtService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private EmailService emailService;
@@ -33,6 +37,15 @@ public class AuthenticationService {
     @Autowired
     private DomainValidationService domainValidationService;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     public String register(String username, String email, String password) {
         if (username == null || password == null || email == null) {
             throw new RuntimeException("Username, email, and password are required.");
@@ -50,14 +63,15 @@ public class AuthenticationService {
             throw new RuntimeException("This email is pending verification. Please request a new code.");
         }
 
-        String encodedPassword = passwordEncoder.encode(password);
+        String encodedPassword = passwordHashingService.encode(password);
         String code = generateVerificationCode();
 
         Users user = new Users();
         populateUserForRegistration(user, username, email, encodedPassword, code);
-        repo.save(user);
-
-        emailService.sendVerificationEmail(email, code);
+        inTransaction(() -> {
+            repo.save(user);
+            emailService.sendVerificationEmail(email, code);
+        });
 
         auditLogService.log("USER_REGISTER", email, null, "User registered an account");
 
@@ -79,9 +93,10 @@ public class AuthenticationService {
         user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(1));
         user.setLastVerificationEmailSentAt(LocalDateTime.now());
 
-        repo.save(user);
-
-        emailService.sendVerificationEmail(email, code);
+        inTransaction(() -> {
+            repo.save(user);
+            emailService.sendVerificationEmail(email, code);
+        });
 
         return "Verification code re-sent to your email.";
     }
@@ -109,8 +124,9 @@ public class AuthenticationService {
         user.setVerificationCode(null);
         user.setVerificationCodeExpiresAt(null);
         repo.save(user);
+        tokenVersionService.invalidate(user.getId());
 
-        return jwtService.generateAccessToken(user.getEmail());
+        return jwtService.generateAccessToken(user);
     }
 
     public TokenResponse login(LoginRequest request) {
@@ -121,12 +137,13 @@ public class AuthenticationService {
 
         if (!user.isVerified()) throw new RuntimeException("Please verify your account before logging in.");
 
-        if (user.getPassword() == null || !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (user.getPassword() == null || !passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("Invalid password.");
         }
+        rehashIfNeeded(user, request.getPassword());
 
-        String accessToken = jwtService.generateAccessToken(user.getEmail());
-        String refreshToken = jwtService.generateRefreshToken(user.getEmail());
+        String accessToken = jwtService.generateAccessToken(user);
+        String refreshToken = refreshTokenService.issue(user);
 
         return new TokenResponse(accessToken, refreshToken);
     }
@@ -146,9 +163,10 @@ public class AuthenticationService {
         user.setVerificationCodeExpiresAt(LocalDateTime.now().plusMinutes(10));
         user.setLastVerificationEmailSentAt(LocalDateTime.now());
 
-        repo.save(user);
-
-        emailService.sendPasswordResetEmail(user.getEmail(), code);
+        inTransaction(() -> {
+            repo.save(user);
+            emailService.sendPasswordResetEmail(user.getEmail(), code);
+        });
         return "Password reset email sent successfully.";
     }
 
@@ -156,17 +174,20 @@ public class AuthenticationService {
         Users user = repo.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User with this email not found."));
 
-        if (passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("New password must be different from the current password.");
         }
 
-        String encodedPassword = passwordEncoder.encode(request.getPassword());
+        String encodedPassword = passwordHashingService.encode(request.getPassword());
 
         user.setPassword(encodedPassword);
         user.setPasswordResetToken(null); 
         user.setPasswordResetExpiresAt(null); 
+        user.setTokenVersion(user.getTokenVersion() + 1);
 
         repo.save(user);
+        tokenVersionService.invalidate(user.getId());
+        refreshTokenService.revokeAllForUser(user.getId());
 
         return "Password reset successfully.";
     }
@@ -199,6 +220,25 @@ public class AuthenticationService {
         return resetToken;
     }
 
+    // Moves hashes made with an older cost factor to the current one while the plain password is at hand.
+    private void rehashIfNeeded(Users user, String rawPassword) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHashingService.encode(rawPassword));
+            repo.save(user);
+        } catch (PasswordHashingOverloadedException e) {
+            // The login already succeeded; the upgrade happens on a later one.
+        }
+    }
+
+    // The email is queued in the outbox with the row change, so neither is kept without the other.
+    // Kept to the writes: hashing and lookups happen before, without holding a connection.
+    private void inTransaction(Runnable writes) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> writes.run());
+    }
+
     private void validateEmailRateLimit(Users user) {
         LocalDateTime lastSent = user.getLastVerificationEmailSentAt();
         if (lastSent != null) {
@@ -236,30 +276,40 @@ public class AuthenticationService {
         return String.format("%06d", (int) (Math.random() * 1_000_000));
     }
 
-    public String refreshAccessToken(String refreshToken) {
-        String email;
+    public TokenResponse refreshTokens(String refreshToken) {
+        Claims claims;
         try {
-            email = jwtService.extractEmail(refreshToken);
+            claims = jwtService.parseToken(refreshToken);
         } catch (Exception e) {
             throw new RuntimeException("Invalid refresh token.");
         }
 
-        Users user = repo.findByEmail(email)
+        // Only refresh tokens carry a jti; an access token (which has a user id) cannot be exchanged.
+        if (claims.getId() == null && jwtService.extractUserId(claims) != null) {
+            throw new RuntimeException("Invalid refresh token.");
+        }
+
+        Users user = repo.findByEmail(claims.getSubject())
                 .orElseThrow(() -> new RuntimeException("User not found."));
 
-        if (!jwtService.isTokenValid(refreshToken, user)) {
+        if (!jwtService.isTokenValid(claims, user)) {
             throw new RuntimeException("Refresh token is invalid or expired.");
         }
 
-        return jwtService.generateAccessToken(email);
-    }
-
-    public String extractEmailFromRefreshToken(String refreshToken) {
-        return jwtService.extractEmail(refreshToken);
+        String nextRefreshToken = refreshTokenService.rotate(claims.getId(), user);
+        return new TokenResponse(jwtService.generateAccessToken(user), nextRefreshToken);
     }
 
-    public String generateRefreshToken(String email) {
-        return jwtService.generateRefreshToken(email);
+    public String logout(String refreshToken) {
+        try {
+            String jti = jwtService.parseToken(refreshToken).getId();
+            if (jti != null) {
+                refreshTokenService.revokeFamily(jti);
+            }
+        } catch (JwtException e) {
+            // An invalid or expired token cannot be used anyway.
+        }
+        return "Logged out successfully.";
     }
 
     public String deleteAccount(DeleteAccountRequest request) {
@@ -270,11 +320,13 @@ public class AuthenticationService {
         Users user = repo.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found."));
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("Invalid password.");
         }
 
         repo.delete(user);
+        tokenVersionService.invalidate(user.getId());
+        refreshTokenService.revokeAllForUser(user.getId());
 
         return "Account deleted successfully.";
     }
@@ -288,16 +340,21 @@ public class AuthenticationService {
         Users user = repo.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found."));
 
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getCurrentPassword(), user.getPassword())) {
             throw new RuntimeException("Current password is incorrect.");
         }
 
-        if (passwordEncoder.matches(request.getNewPassword(), user.getPassword())) {
+        // The current password was just verified, so comparing the plain values saves a second hash.
+        if (request.getNewPassword().equals(request.getCurrentPassword())) {
             throw new RuntimeException("New password must be different from current password.");
         }
 
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
+        // Signs out every session that still holds a token issued with the old password.
+        user.setTokenVersion(user.getTokenVersion() + 1);
         repo.save(user);
+        tokenVersionService.invalidate(user.getId());
+        refreshTokenService.revokeAllForUser(user.getId());
 
         auditLogService.log("PASSWORD_CHANGE", user.getEmail(), null, "User changed password");
 
@@ -1,24 +1,158 @@
 package com.daniel.backend.auth.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.xbill.DNS.*;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Name;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+import org.xbill.DNS.lookup.LookupSession;
+import org.xbill.DNS.lookup.NoSuchDomainException;
+import org.xbill.DNS.lookup.NoSuchRRSetException;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks that an email domain has MX records. Answers are cached for the record TTL
+ * (clamped), and "no such domain / no MX" for a fixed negative TTL; concurrent checks of
+ * the same domain share one lookup. A lookup that misses the deadline or fails at the
+ * resolver counts as valid, so signup never waits on DNS: a bad address simply never
+ * receives its verification code. The lookup keeps running and fills the cache.
+ */
 @Service
 public class DomainValidationService {
 
+    private final AsyncCache<String, MxAnswer> answers;
+    private final LookupSession lookupSession;
+    private final long deadlineMs;
+    private final Duration negativeTtl;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final Counter failOpen;
+
+    public DomainValidationService(
+            MeterRegistry meterRegistry,
+            @Value("${domain-validation.cache.max-size}") long maxSize,
+            @Value("${domain-validation.cache.negative-ttl-seconds}") long negativeTtlSeconds,
+            @Value("${domain-validation.cache.min-ttl-seconds}") long minTtlSeconds,
+            @Value("${domain-validation.cache.max-ttl-seconds}") long maxTtlSeconds,
+            @Value("${domain-validation.deadline-ms}") long deadlineMs,
+            @Value("${domain-validation.resolver-timeout-ms}") long resolverTimeoutMs,
+            @Value("${domain-validation.preseeded-domains}") List<String> preseededDomains
+    ) {
+        this.deadlineMs = deadlineMs;
+        this.negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+        this.minTtl = Duration.ofSeconds(minTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.answers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, MxAnswer>() {
+                    @Override
+                    public long expireAfterCreate(String domain, MxAnswer answer, long currentTime) {
+                        return answer.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String domain, MxAnswer answer, long currentTime, long currentDuration) {
+                        return answer.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String domain, MxAnswer answer, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+        this.lookupSession = lookupSession(resolverTimeoutMs);
+        this.failOpen = Counter.builder("auth.domain_validation.fail_open")
+                .description("Domain checks answered as valid because DNS did not answer in time")
+                .register(meterRegistry);
+
+        // Popular providers never need a lookup on the signup path; they are resolved normally once this expires.
+        MxAnswer seeded = new MxAnswer(true, maxTtl);
+        preseededDomains.stream()
+                .map(domain -> domain.trim().toLowerCase(Locale.ROOT))
+                .filter(domain -> !domain.isEmpty())
+                .forEach(domain -> answers.put(domain, CompletableFuture.completedFuture(seeded)));
+    }
+
     public boolean isDomainValid(String email) {
-        try {
-            String domain = extractDomain(email);
-            Record[] records = new Lookup(domain, Type.MX).run();
-            return records != null && records.length > 0;
-        } catch (Exception e) {
+        String domain = extractDomain(email);
+        if (domain.isEmpty()) {
             return false;
         }
+
+        CompletableFuture<MxAnswer> answer = answers.get(domain, (key, executor) -> lookup(key));
+        try {
+            return answer.get(deadlineMs, TimeUnit.MILLISECONDS).valid();
+        } catch (TimeoutException | ExecutionException e) {
+            failOpen.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    // Failed futures (timeouts, SERVFAIL) are not kept by the cache, so the next check retries.
+    CompletableFuture<MxAnswer> lookup(String domain) {
+        Name name;
+        try {
+            name = Name.fromString(domain, Name.root);
+        } catch (TextParseException e) {
+            return CompletableFuture.completedFuture(new MxAnswer(false, negativeTtl));
+        }
+
+        return lookupSession.lookupAsync(name, Type.MX)
+                .thenApply(result -> {
+                    List<Record> records = result.getRecords();
+                    if (records.isEmpty()) {
+                        return new MxAnswer(false, negativeTtl);
+                    }
+                    long ttl = records.stream().mapToLong(Record::getTTL).min().orElse(0);
+                    return new MxAnswer(true, clamp(Duration.ofSeconds(ttl)));
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof NoSuchDomainException || cause instanceof NoSuchRRSetException) {
+                        return new MxAnswer(false, negativeTtl);
+                    }
+                    throw new CompletionException(cause);
+                })
+                .toCompletableFuture();
+    }
+
+    private Duration clamp(Duration ttl) {
+        if (ttl.compareTo(minTtl) < 0) {
+            return minTtl;
+        }
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private static LookupSession lookupSession(long resolverTimeoutMs) {
+        ExtendedResolver resolver = new ExtendedResolver();
+        resolver.setTimeout(Duration.ofMillis(resolverTimeoutMs));
+        return LookupSession.builder().resolver(resolver).build();
     }
 
     private String extractDomain(String email) {
         int atIndex = email.lastIndexOf("@");
-        return atIndex != -1 ? email.substring(atIndex + 1).toLowerCase() : email.toLowerCase();
+        return atIndex != -1 ? email.substring(atIndex + 1).toLowerCase(Locale.ROOT) : email.toLowerCase(Locale.ROOT);
+    }
+
+    record MxAnswer(boolean valid, Duration ttl) {
     }
 }
@@ -0,0 +1,265 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.entity.EmailOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends what EmailService put in email_outbox. Due rows are claimed in batches with
+ * SKIP LOCKED (so several instances can dispatch side by side) and leased by pushing
+ * next_attempt_at forward; a batch then goes out over one SMTP connection. Failed
+ * messages are retried with exponential backoff and given up after max-attempts.
+ * Delivery is at least once: a crash between sending and marking re-sends after the lease.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final String CLAIM_SQL =
+            "UPDATE email_outbox SET attempts = attempts + 1, next_attempt_at = ? " +
+            "WHERE id IN (SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, recipient, subject, body, attempts";
+
+    private final JavaMailSender mailSender;
+    private final ExecutorService smtpExecutor;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String from;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final int retentionDays;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    public EmailOutboxDispatcher(
+            JavaMailSender mailSender,
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${spring.mail.username}") String from,
+            @Value("${email.delivery.threads}") int smtpThreads,
+            @Value("${email.outbox.batch-size}") int batchSize,
+            @Value("${email.outbox.max-attempts}") int maxAttempts,
+            @Value("${email.outbox.initial-backoff-ms}") long initialBackoffMs,
+            @Value("${email.outbox.max-backoff-ms}") long maxBackoffMs,
+            @Value("${email.outbox.lease-seconds}") long leaseSeconds,
+            @Value("${email.outbox.retention-days}") int retentionDays
+    ) {
+        this.mailSender = mailSender;
+        // Jakarta Mail's SMTPTransport synchronizes around its socket I/O, which would pin the carrier
+        // of a virtual thread for the whole SMTP exchange. Kept out of the context on purpose: an
+        // Executor bean would make Boot back off from its own virtual-thread task executor.
+        this.smtpExecutor = Executors.newFixedThreadPool(smtpThreads, Thread.ofPlatform()
+                .name("smtp-", 0)
+                .daemon(true)
+                .factory());
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.from = from;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retentionDays = retentionDays;
+
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get)
+                .description("Emails waiting in the outbox, as of the last dispatch")
+                .register(meterRegistry);
+        this.sent = Counter.builder("email.outbox.sent")
+                .description("Emails handed to the SMTP server")
+                .register(meterRegistry);
+        this.retried = Counter.builder("email.outbox.retried")
+                .description("Send attempts that failed and were rescheduled")
+                .register(meterRegistry);
+        this.failed = Counter.builder("email.outbox.failed")
+                .description("Emails given up after the last attempt")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("email.outbox.batch")
+                .description("Time to send one batch over a single SMTP connection")
+                .register(meterRegistry);
+    }
+
+    // Called after a commit that added mail, so it goes out right away instead of at the next poll.
+    public void wakeUp() {
+        wakeRequested.set(true);
+        if (draining.compareAndSet(false, true)) {
+            smtpExecutor.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        smtpExecutor.shutdown();
+    }
+
+    // Picks up retries that became due and mail written by other instances.
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms}")
+    public void poll() {
+        wakeUp();
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron}")
+    public void purge() {
+        try {
+            jdbcTemplate.update("DELETE FROM email_outbox WHERE status <> 'PENDING' AND created_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        } catch (Exception e) {
+            System.err.println("Failed to purge email outbox: " + e.getMessage());
+        }
+    }
+
+    // Only one drain runs per instance; a wake-up that arrives meanwhile makes it look again.
+    private void drain() {
+        do {
+            wakeRequested.set(false);
+            try {
+                List<EmailOutbox> batch;
+                while (!(batch = claim()).isEmpty()) {
+                    List<EmailOutbox> claimed = batch;
+                    batchTimer.record(() -> send(claimed));
+                }
+                Long count = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM email_outbox WHERE status = 'PENDING'", Long.class);
+                pending.set(count != null ? count : 0);
+            } catch (Exception e) {
+                System.err.println("Email outbox dispatch failed: " + e.getMessage());
+            }
+            draining.set(false);
+        } while (wakeRequested.get() && draining.compareAndSet(false, true));
+    }
+
+    private List<EmailOutbox> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> EmailOutbox.builder()
+                        .id(rs.getLong("id"))
+                        .recipient(rs.getString("recipient"))
+                        .subject(rs.getString("subject"))
+                        .body(rs.getString("body"))
+                        .attempts(rs.getInt("attempts"))
+                        .build(),
+                Timestamp.valueOf(now.plus(lease)), Timestamp.valueOf(now), batchSize));
+    }
+
+    private void send(List<EmailOutbox> batch) {
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        Map<EmailOutbox, String> errors = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            try {
+                messages.put(toMessage(email), email);
+            } catch (Exception e) {
+                errors.put(email, "Could not build message: " + e.getMessage());
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                // JavaMailSenderImpl sends an array over one connection: one handshake per batch.
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                if (e.getFailedMessages().isEmpty()) {
+                    messages.values().forEach(email -> errors.put(email, e.getMessage()));
+                } else {
+                    e.getFailedMessages().forEach((message, error) -> {
+                        EmailOutbox email = messages.get(message);
+                        if (email != null) {
+                            errors.put(email, error.getMessage());
+                        }
+                    });
+                }
+            } catch (MailException e) {
+                messages.values().forEach(email -> errors.put(email, e.getMessage()));
+            }
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        for (EmailOutbox email : batch) {
+            if (!errors.containsKey(email)) {
+                delivered.add(email.getId());
+            }
+        }
+        markSent(delivered);
+        errors.forEach(this::markFailedAttempt);
+    }
+
+    private MimeMessage toMessage(EmailOutbox email) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setTo(email.getRecipient());
+        helper.setFrom(from);
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), true);
+        return message;
+    }
+
+    private void markSent(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        namedJdbcTemplate.update(
+                "UPDATE email_outbox SET status = 'SENT', sent_at = :now, last_error = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("now", Timestamp.valueOf(LocalDateTime.now())).addValue("ids", ids));
+        sent.increment(ids.size());
+    }
+
+    private void markFailedAttempt(EmailOutbox email, String error) {
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (email.getAttempts() >= maxAttempts) {
+            jdbcTemplate.update("UPDATE email_outbox SET status = 'FAILED', last_error = ? WHERE id = ?",
+                    message, email.getId());
+            failed.increment();
+            System.err.println("Giving up on email " + email.getId() + " to " + email.getRecipient() + ": " + message);
+            return;
+        }
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ?, last_error = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plus(backoff(email.getAttempts()))), message, email.getId());
+        retried.increment();
+    }
+
+    Duration backoff(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration delay = initialBackoff.multipliedBy(1L << exponent);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
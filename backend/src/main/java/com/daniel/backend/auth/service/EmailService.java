@@ -1,20 +1,22 @@
 package com.daniel.backend.auth.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.daniel.backend.auth.entity.EmailOutbox;
+import com.daniel.backend.auth.repository.EmailOutboxRepo;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
 
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxRepo outboxRepo;
 
-    @Value("${spring.mail.username}")
-    private String from;
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
 
     public void sendVerificationEmail(String to, String verificationCode) {
         String subject = "Verify your account";
@@ -84,17 +86,7 @@ public class EmailService {
                 "</body>" +
                 "</html>";
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setTo(to);
-            helper.setFrom(from);
-            helper.setSubject(subject);
-            helper.setText(htmlMessage, true);
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send verification email", e);
-        }
+        send(to, subject, htmlMessage);
     }
 
     public void sendPasswordResetEmail(String to, String token) {
@@ -163,18 +155,31 @@ public class EmailService {
                 "</body>" +
                 "</html>";
 
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setTo(to);
-            helper.setFrom(from);
-            helper.setSubject(subject);
-            helper.setText(htmlMessage, true);
-            mailSender.send(message);
+        send(to, subject, htmlMessage);
+    }
+
+    // Saved in the caller's transaction and sent by EmailOutboxDispatcher once it commits.
+    private void send(String to, String subject, String htmlMessage) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepo.save(EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(htmlMessage)
+                .status(EmailOutbox.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
 
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send verification email", e);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
         }
     }
 }
-
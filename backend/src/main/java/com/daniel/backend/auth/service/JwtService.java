@@ -2,9 +2,11 @@ package com.daniel.backend.auth.service;
 
 import com.daniel.backend.auth.entity.Users;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,9 @@ import java.util.Map;
 @Service
 public class JwtService {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     @Value("${JWT_SECRET_KEY}")
     private String secretKey;
 
@@ -26,21 +31,28 @@ public class JwtService {
     @Value("${security.jwt.refresh-token-expiration}")
     private long refreshTokenExpiration;
 
-    public String generateAccessToken(String email) {
-        return generateToken(email, accessTokenExpiration);
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    public String generateAccessToken(Users user) {
+        return generateToken(user, accessTokenExpiration, null);
     }
 
-    public String generateRefreshToken(String email) {
-        return generateToken(email, refreshTokenExpiration);
+    // The jti identifies the token in the refresh token store (see RefreshTokenService).
+    public String generateRefreshToken(Users user, String jti) {
+        return generateToken(user, refreshTokenExpiration, jti);
     }
 
-    private String generateToken(String username, long expirationTime) {
+    private String generateToken(Users user, long expirationTime, String jti) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
 
         return Jwts.builder()
                 .claims()
                 .add(claims)
-                .subject(username)
+                .id(jti)
+                .subject(user.getEmail())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expirationTime))
                 .and()
@@ -48,53 +60,44 @@ public class JwtService {
                 .compact();
     }
 
-    private SecretKey getKey() {
-        byte[] key = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(key);
+    // Null for tokens issued before ids were embedded.
+    public Long extractUserId(Claims claims) {
+        Number id = claims.get(USER_ID_CLAIM, Number.class);
+        return id != null ? id.longValue() : null;
     }
 
-    public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // Tokens issued before versions were embedded count as version 0, the initial version.
+    public long extractTokenVersion(Claims claims) {
+        Number version = claims.get(TOKEN_VERSION_CLAIM, Number.class);
+        return version != null ? version.longValue() : 0L;
     }
 
-    public boolean isTokenValid(String token, Users user) {
-        try {
-            var claims = Jwts.parser().verifyWith(getKey()).build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-            String username = claims.getSubject();
-            Date expiration = claims.getExpiration();
-
-            return username.equals(user.getEmail()) && !expiration.before(new Date());
-        } catch (Exception e) {
-            return false;
-        }
+    // The key and parser are immutable and thread-safe, so they are built once rather than per token.
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
-    public <T> T extractClaim(String token, java.util.function.Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private SecretKey getKey() {
+        return signingKey;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    // Verifies the signature and expiry in one pass; throws JwtException if either fails.
+    public Claims parseToken(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        return (email.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    public String extractEmail(String token) {
+        return parseToken(token).getSubject();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(Claims claims, Users user) {
+        return claims.getSubject().equals(user.getEmail())
+                && extractTokenVersion(claims) == user.getTokenVersion();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
-}
\ No newline at end of file
+}
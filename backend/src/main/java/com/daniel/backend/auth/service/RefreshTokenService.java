@@ -0,0 +1,188 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.entity.RefreshToken;
+import com.daniel.backend.auth.entity.Users;
+import com.daniel.backend.auth.repository.RefreshTokenRepo;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Refresh tokens are single use. Each refresh marks the presented token as replaced and
+ * issues the next one in the same family; presenting a token that was already used means it
+ * leaked, so the whole family is revoked. Revoked ids of unexpired tokens are mirrored in a
+ * compact in-memory set, so replays are rejected without a database read. The set is rebuilt
+ * at startup and picks up revocations made by other instances every sync interval; the
+ * conditional update on rotation stays authoritative either way.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class RefreshTokenService {
+
+    // Revocations committed shortly before a sync started may carry an earlier timestamp.
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    private final RefreshTokenRepo repo;
+    private final JwtService jwtService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long refreshTokenExpiration;
+    private final RevokedTokenSet revoked = new RevokedTokenSet();
+    private volatile LocalDateTime lastSync;
+
+    public RefreshTokenService(
+            RefreshTokenRepo repo,
+            JwtService jwtService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${security.jwt.refresh-token-expiration}") long refreshTokenExpiration
+    ) {
+        this.repo = repo;
+        this.jwtService = jwtService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshTokenExpiration = refreshTokenExpiration;
+    }
+
+    @PostConstruct
+    public void loadRevoked() {
+        rebuild();
+    }
+
+    // Starts a new family, e.g. at login.
+    public String issue(Users user) {
+        String jti = UUID.randomUUID().toString();
+        save(jti, jti, user.getId());
+        return jwtService.generateRefreshToken(user, jti);
+    }
+
+    /**
+     * Exchanges a verified refresh token for the next one of its family. Tokens issued
+     * before the store existed have no id and start a new family.
+     */
+    public String rotate(String jti, Users user) {
+        if (jti == null) {
+            return issue(user);
+        }
+        if (revoked.contains(jti)) {
+            revokeFamily(jti);
+            throw new RuntimeException("Refresh token has already been used.");
+        }
+
+        String next = UUID.randomUUID().toString();
+        Boolean rotated = transactionTemplate.execute(status -> {
+            List<String> family = jdbcTemplate.queryForList(
+                    "SELECT family_id FROM refresh_token WHERE jti = ? AND user_id = ?", String.class, jti, user.getId());
+            if (family.isEmpty()) {
+                return null;
+            }
+            // Only one caller can flip revoked_at from null, so a token raced by two clients is used once.
+            int updated = jdbcTemplate.update(
+                    "UPDATE refresh_token SET revoked_at = ?, replaced_by = ? WHERE jti = ? AND revoked_at IS NULL",
+                    Timestamp.valueOf(LocalDateTime.now()), next, jti);
+            if (updated == 0) {
+                return false;
+            }
+            save(next, family.get(0), user.getId());
+            return true;
+        });
+
+        if (rotated == null) {
+            throw new RuntimeException("Refresh token is invalid or expired.");
+        }
+        if (!rotated) {
+            revokeFamily(jti);
+            throw new RuntimeException("Refresh token has already been used.");
+        }
+        revoked.add(jti);
+        return jwtService.generateRefreshToken(user, next);
+    }
+
+    // Logout: ends the session the token belongs to, across all its rotations.
+    public void revokeFamily(String jti) {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT t.jti FROM refresh_token t JOIN refresh_token presented ON presented.family_id = t.family_id " +
+                "WHERE presented.jti = ?", String.class, jti);
+        jdbcTemplate.update(
+                "UPDATE refresh_token SET revoked_at = ? WHERE revoked_at IS NULL " +
+                "AND family_id = (SELECT family_id FROM refresh_token WHERE jti = ?)",
+                Timestamp.valueOf(LocalDateTime.now()), jti);
+        ids.forEach(revoked::add);
+    }
+
+    // Password change, reset or account deletion: ends every session of the user.
+    public void revokeAllForUser(Long userId) {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT jti FROM refresh_token WHERE user_id = ? AND revoked_at IS NULL", String.class, userId);
+        jdbcTemplate.update(
+                "UPDATE refresh_token SET revoked_at = ? WHERE user_id = ? AND revoked_at IS NULL",
+                Timestamp.valueOf(LocalDateTime.now()), userId);
+        ids.forEach(revoked::add);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.refresh-store.sync-interval-ms}")
+    public void syncRevoked() {
+        LocalDateTime since = lastSync;
+        LocalDateTime now = LocalDateTime.now();
+        if (since == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.query(
+                    "SELECT jti FROM refresh_token WHERE revoked_at > ? AND expires_at > ?",
+                    (RowCallbackHandler) rs -> revoked.add(rs.getString(1)),
+                    Timestamp.valueOf(since.minusSeconds(SYNC_OVERLAP_SECONDS)), Timestamp.valueOf(now));
+            lastSync = now;
+        } catch (Exception e) {
+            System.err.println("Failed to sync revoked refresh tokens: " + e.getMessage());
+        }
+    }
+
+    // Expired tokens fail signature checks on their own, so their rows and set entries can go.
+    @Scheduled(cron = "${security.jwt.refresh-store.purge-cron}")
+    public void purgeExpired() {
+        try {
+            jdbcTemplate.update("DELETE FROM refresh_token WHERE expires_at < ?", Timestamp.valueOf(LocalDateTime.now()));
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Failed to purge expired refresh tokens: " + e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM refresh_token WHERE revoked_at IS NOT NULL AND expires_at > ?",
+                Integer.class, Timestamp.valueOf(now));
+        RevokedTokenSet rebuilt = new RevokedTokenSet(count != null ? count : 0);
+        jdbcTemplate.query(
+                "SELECT jti FROM refresh_token WHERE revoked_at IS NOT NULL AND expires_at > ?",
+                (RowCallbackHandler) rs -> rebuilt.add(rs.getString(1)),
+                Timestamp.valueOf(now));
+        revoked.replaceWith(rebuilt);
+        lastSync = now;
+    }
+
+    private void save(String jti, String familyId, Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        repo.save(RefreshToken.builder()
+                .jti(jti)
+                .familyId(familyId)
+                .userId(userId)
+                .issuedAt(now)
+                .expiresAt(now.plus(Duration.ofMillis(refreshTokenExpiration)))
+                .build());
+    }
+}
@@ -0,0 +1,173 @@
+package com.daniel.backend.auth.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash set of UUID token ids stored as pairs of longs in one array: 16 bytes
+ * per id instead of a String and a map node, and a lookup allocates nothing. Reads are
+ * optimistic and only take the read lock if a write raced them.
+ */
+final class RevokedTokenSet {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    // Slot i holds (slots[2i], slots[2i + 1]); (0, 0) marks an empty slot, which no random UUID is.
+    private long[] slots;
+    private int size;
+
+    RevokedTokenSet() {
+        this(MIN_CAPACITY);
+    }
+
+    RevokedTokenSet(int expectedSize) {
+        this.slots = new long[2 * capacityFor(expectedSize)];
+    }
+
+    boolean contains(String jti) {
+        if (!isUuid(jti)) {
+            return false;
+        }
+        long msb = parseHex(jti, 0, 18);
+        long lsb = parseHex(jti, 19, 36);
+
+        long stamp = lock.tryOptimisticRead();
+        boolean found = probe(slots, msb, lsb);
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return probe(slots, msb, lsb);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void add(String jti) {
+        if (!isUuid(jti)) {
+            return;
+        }
+        long msb = parseHex(jti, 0, 18);
+        long lsb = parseHex(jti, 19, 36);
+
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > slots.length / 2) {
+                resize(slots.length);
+            }
+            if (insert(slots, msb, lsb)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Swaps in the contents of a freshly built set, e.g. after expired ids were purged.
+    void replaceWith(RevokedTokenSet rebuilt) {
+        long stamp = lock.writeLock();
+        try {
+            slots = rebuilt.slots;
+            size = rebuilt.size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void resize(int newSlotCount) {
+        long[] old = slots;
+        long[] grown = new long[2 * newSlotCount];
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                insert(grown, old[i], old[i + 1]);
+            }
+        }
+        slots = grown;
+    }
+
+    private static boolean probe(long[] table, long msb, long lsb) {
+        int mask = table.length / 2 - 1;
+        int index = hash(msb, lsb) & mask;
+        // Bounded so a read racing a write can never spin; validate() discards its answer anyway.
+        for (int probes = 0; probes <= mask; probes++) {
+            long storedMsb = table[2 * index];
+            long storedLsb = table[2 * index + 1];
+            if (storedMsb == msb && storedLsb == lsb) {
+                return true;
+            }
+            if (storedMsb == 0 && storedLsb == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean insert(long[] table, long msb, long lsb) {
+        int mask = table.length / 2 - 1;
+        int index = hash(msb, lsb) & mask;
+        while (true) {
+            long storedMsb = table[2 * index];
+            long storedLsb = table[2 * index + 1];
+            if (storedMsb == msb && storedLsb == lsb) {
+                return false;
+            }
+            if (storedMsb == 0 && storedLsb == 0) {
+                table[2 * index] = msb;
+                table[2 * index + 1] = lsb;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // Power of two with at most 50% load.
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static boolean isUuid(String value) {
+        return value != null && value.length() == 36
+                && value.charAt(8) == '-' && value.charAt(13) == '-'
+                && value.charAt(18) == '-' && value.charAt(23) == '-';
+    }
+
+    // Reads 16 hex digits from [from, to), skipping dashes; invalid digits make the id unmatchable.
+    private static long parseHex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return 0;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+}
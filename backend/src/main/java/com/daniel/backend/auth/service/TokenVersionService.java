@@ -0,0 +1,70 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.repository.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Current token version per user id, so a signed token can be trusted without loading
+ * the user. Entries are dropped on password change, verification and account deletion;
+ * the TTL only bounds how long another instance may accept a revoked token.
+ * <p>
+ * The lookup runs outside the cache, not in a Caffeine compute, so it never pins
+ * the request's virtual thread while it waits on JDBC.
+ */
+@Service
+public class TokenVersionService {
+
+    // Cached for deleted or unverified users so their tokens do not reach the database each time.
+    private static final long NO_VALID_USER = -1L;
+
+    private final UserRepo userRepo;
+    private final Cache<Long, Long> versions;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TokenVersionService(
+            UserRepo userRepo,
+            @Value("${security.jwt.version-cache.max-size}") long maxSize,
+            @Value("${security.jwt.version-cache.ttl-seconds}") long ttlSeconds
+    ) {
+        this.userRepo = userRepo;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        if (userId == null) {
+            return false;
+        }
+        Long current = versions.getIfPresent(userId);
+        if (current == null) {
+            current = load(userId);
+        }
+        return current != NO_VALID_USER && current == tokenVersion;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            invalidations.incrementAndGet();
+            versions.invalidate(userId);
+        }
+    }
+
+    private long load(Long userId) {
+        long seen = invalidations.get();
+        long current = userRepo.findTokenVersionById(userId).orElse(NO_VALID_USER);
+        versions.put(userId, current);
+        // An invalidation during the lookup may have been overtaken by this put; drop it rather than cache a revoked version.
+        if (invalidations.get() != seen) {
+            versions.invalidate(userId);
+        }
+        return current;
+    }
+}
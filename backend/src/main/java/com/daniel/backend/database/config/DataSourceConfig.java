@@ -0,0 +1,63 @@
+package com.daniel.backend.database.config;
+
+import com.daniel.backend.database.metrics.ConnectionHoldTimingDataSource;
+import com.daniel.backend.database.routing.ReplicaRoutingDataSource;
+import com.daniel.backend.database.service.ReadYourWritesTracker;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Replicas reuse the primary's credentials and pool settings; only the URL differs.
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            ReadYourWritesTracker readYourWritesTracker,
+            @Value("${database.replica.urls}") List<String> replicaUrls
+    ) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setPoolName(primaryDataSource.getPoolName() + "-replica-" + replicas.size());
+            config.setReadOnly(true);
+
+            String name = "replica-" + replicas.size();
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, new HikariDataSource(config)));
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWritesTracker);
+    }
+
+    // Timing sits below the lazy proxy so only connections actually taken from a pool are measured.
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ConnectionHoldTimingDataSource(replicaRoutingDataSource, meterRegistry));
+    }
+}
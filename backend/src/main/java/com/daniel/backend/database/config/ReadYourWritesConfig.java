@@ -0,0 +1,19 @@
+package com.daniel.backend.database.config;
+
+import com.daniel.backend.database.filter.ReadYourWritesInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class ReadYourWritesConfig implements WebMvcConfigurer {
+
+    private final ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor);
+    }
+}
@@ -0,0 +1,45 @@
+package com.daniel.backend.database.filter;
+
+import com.daniel.backend.database.service.ReadYourWritesTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.security.Principal;
+
+/**
+ * Any non-GET request from a signed-in user counts as a mutation and pins that user's
+ * reads to the primary. The window is opened when the request starts and renewed when
+ * it completes, so slow uploads are covered from their first read to well after commit.
+ */
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        recordMutation(request);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        recordMutation(request);
+    }
+
+    private void recordMutation(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return;
+        }
+
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            readYourWritesTracker.recordWrite(principal.getName());
+        }
+    }
+}
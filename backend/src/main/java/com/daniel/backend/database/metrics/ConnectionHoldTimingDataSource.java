@@ -0,0 +1,81 @@
+package com.daniel.backend.database.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long each physical connection is kept out of the pool, tagged with the
+ * endpoint that borrowed it. Work done outside a request (scheduled jobs, startup) is
+ * tagged "background"; work done before the handler is resolved (the JWT filter) "filter".
+ */
+public class ConnectionHoldTimingDataSource extends DelegatingDataSource {
+
+    private final MeterRegistry meterRegistry;
+
+    public ConnectionHoldTimingDataSource(DataSource targetDataSource, MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    private Connection timed(Connection connection) {
+        Timer timer = Timer.builder("db.connection.hold")
+                .description("Time a pooled connection was held, per endpoint")
+                .tags(endpointTags())
+                .register(meterRegistry);
+        long start = System.nanoTime();
+
+        AtomicBoolean recorded = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && recorded.compareAndSet(false, true)) {
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static String[] endpointTags() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return new String[]{"method", "none", "endpoint", "background"};
+        }
+
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return new String[]{
+                "method", request.getMethod(),
+                "endpoint", pattern != null ? pattern.toString() : "filter"
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package com.daniel.backend.database.routing;
+
+import com.daniel.backend.database.service.ReadYourWritesTracker;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica (round-robin) and everything else
+ * to the primary. Must sit behind a LazyConnectionDataSourceProxy: the transaction's
+ * read-only flag is only set after the transaction manager asks for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, ReadYourWritesTracker readYourWritesTracker) {
+        this.replicas = replicas;
+        this.readYourWritesTracker = readYourWritesTracker;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    // The primary is a bean of its own and closed by the container; the replica pools are owned here.
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close " + replica.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || readYourWritesTracker.isCurrentUserPinnedToPrimary()) {
+            return PRIMARY;
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isHealthy()) {
+                return replica.getName();
+            }
+        }
+        return PRIMARY;
+    }
+
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile long lagMillis = -1;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        // Replicas start out unhealthy and only receive reads once the lag monitor has checked them.
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        public void update(boolean healthy, long lagMillis) {
+            this.lagMillis = lagMillis;
+            this.healthy = healthy;
+        }
+    }
+}
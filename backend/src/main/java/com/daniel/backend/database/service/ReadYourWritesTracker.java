@@ -0,0 +1,47 @@
+package com.daniel.backend.database.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users changed something recently so their reads stay on the primary
+ * until the replicas have had time to catch up with their own writes.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    @Value("${database.replica.sticky-window-ms}")
+    private long stickyWindowMillis;
+
+    public void recordWrite(String user) {
+        pinnedUntil.put(user, System.currentTimeMillis() + stickyWindowMillis);
+    }
+
+    public boolean isCurrentUserPinnedToPrimary() {
+        if (pinnedUntil.isEmpty()) {
+            return false;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            return false;
+        }
+
+        Long until = pinnedUntil.get(authentication.getName());
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        pinnedUntil.entrySet().removeIf(entry -> entry.getValue() <= now);
+    }
+}
@@ -0,0 +1,60 @@
+package com.daniel.backend.database.service;
+
+import com.daniel.backend.database.routing.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Polls every replica for its replay lag and takes it out of rotation while the lag
+ * exceeds database.replica.max-lag-ms or the replica cannot be reached.
+ */
+@Component
+public class ReplicaLagMonitor {
+
+    // An idle primary writes no WAL, so a caught-up replica reports zero instead of the age of its last replayed commit.
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final List<ReplicaRoutingDataSource.Replica> replicas;
+
+    @Value("${database.replica.max-lag-ms}")
+    private long maxLagMillis;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, MeterRegistry meterRegistry) {
+        this.replicas = routingDataSource.getReplicas();
+
+        for (ReplicaRoutingDataSource.Replica replica : replicas) {
+            Gauge.builder("database.replica.lag", replica, ReplicaRoutingDataSource.Replica::getLagMillis)
+                    .tag("replica", replica.getName())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("database.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                    .tag("replica", replica.getName())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${database.replica.lag-check-interval-ms}")
+    public void checkReplicas() {
+        for (ReplicaRoutingDataSource.Replica replica : replicas) {
+            try {
+                Number lag = new JdbcTemplate(replica.getDataSource()).queryForObject(LAG_SQL, Number.class);
+                long lagMillis = lag != null ? lag.longValue() : 0L;
+                replica.update(lagMillis <= maxLagMillis, lagMillis);
+            } catch (Exception e) {
+                if (replica.isHealthy()) {
+                    System.err.println("Replica " + replica.getName() + " removed from rotation: " + e.getMessage());
+                }
+                replica.update(false, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.daniel.backend.file.config;
+
+import com.daniel.backend.file.filter.TransferLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class TransferLimitConfig implements WebMvcConfigurer {
+
+    private final TransferLimitInterceptor transferLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(transferLimitInterceptor)
+                .addPathPatterns("/file/upload", "/file/download", "/share/public/access/**");
+    }
+}
@@ -1,6 +1,8 @@
 package com.daniel.backend.file.controller;
 
+import com.daniel.backend.file.dto.FileVersionDto;
 import com.daniel.backend.file.dto.S3ObjectDto;
+import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.service.StorageService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.AccessDeniedException;
 import java.util.List;
 
 @RestController
@@ -28,10 +31,11 @@ public class StorageController {
     }
 
     @GetMapping("/download")
-    public ResponseEntity<ByteArrayResource> downloadFile(@RequestParam String s3Key) {
+    public ResponseEntity<ByteArrayResource> downloadFile(@RequestParam String s3Key, Authentication authentication) {
         try {
-            byte[] data = service.downloadFile(s3Key);
-            String displayName = service.getDisplayName(s3Key);
+            Files metadata = service.getFileMetadata(s3Key, authentication.getName());
+            byte[] data = service.downloadFile(metadata);
+            String displayName = metadata.getDisplayName();
 
             String downloadFileName = displayName;
             if (displayName.contains("/")) {
@@ -43,6 +47,8 @@ public class StorageController {
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadFileName + "\"")
                     .header(HttpHeaders.CONTENT_TYPE, "application/octet-stream")
                     .body(new ByteArrayResource(data));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -51,9 +57,11 @@ public class StorageController {
     }
 
     @DeleteMapping("/delete")
-    public ResponseEntity<String> deleteFile(@RequestParam String fileName) {
+    public ResponseEntity<String> deleteFile(@RequestParam String fileName, Authentication authentication) {
         try {
-            return new ResponseEntity<>(service.softDeleteFile(fileName), HttpStatus.OK);
+            return new ResponseEntity<>(service.softDeleteFile(fileName, authentication.getName()), HttpStatus.OK);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -62,9 +70,11 @@ public class StorageController {
     }
 
     @DeleteMapping("/{fileName}/permanent")
-    public ResponseEntity<String> permanentlyDeleteFile(@PathVariable String fileName) {
+    public ResponseEntity<String> permanentlyDeleteFile(@PathVariable String fileName, Authentication authentication) {
         try {
-            return new ResponseEntity<>(service.permanentlyDeleteFile(fileName), HttpStatus.OK);
+            return new ResponseEntity<>(service.permanentlyDeleteFile(fileName, authentication.getName()), HttpStatus.OK);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -73,9 +83,11 @@ public class StorageController {
     }
 
     @PostMapping("/{fileName}/restore")
-    public ResponseEntity<String> restoreFile(@PathVariable String fileName) {
+    public ResponseEntity<String> restoreFile(@PathVariable String fileName, Authentication authentication) {
         try {
-            return new ResponseEntity<>(service.restoreFile(fileName), HttpStatus.OK);
+            return new ResponseEntity<>(service.restoreFile(fileName, authentication.getName()), HttpStatus.OK);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -84,9 +96,11 @@ public class StorageController {
     }
 
     @PostMapping("/restore")
-    public ResponseEntity<String> restoreFileByQuery(@RequestParam String s3Key) {
+    public ResponseEntity<String> restoreFileByQuery(@RequestParam String s3Key, Authentication authentication) {
         try {
-            return new ResponseEntity<>(service.restoreFile(s3Key), HttpStatus.OK);
+            return new ResponseEntity<>(service.restoreFile(s3Key, authentication.getName()), HttpStatus.OK);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -118,14 +132,42 @@ public class StorageController {
         }
     }
 
+    @GetMapping("/versions")
+    public ResponseEntity<List<FileVersionDto>> listVersions(@RequestParam String s3Key, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(service.listVersions(s3Key, authentication.getName()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @PostMapping("/versions/{versionId}/restore")
+    public ResponseEntity<String> restoreVersion(@PathVariable Long versionId, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(service.restoreVersion(versionId, authentication.getName()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Version restore failed: " + e.getMessage());
+        }
+    }
+
     @PatchMapping("/rename")
     public ResponseEntity<String> renameFile(
             @RequestParam String s3Key,
-            @RequestParam String newDisplayName
+            @RequestParam String newDisplayName,
+            Authentication authentication
     ) {
         try {
-            service.renameFile(s3Key, newDisplayName);
+            service.renameFile(s3Key, newDisplayName, authentication.getName());
             return ResponseEntity.ok("Renamed successfully");
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -136,10 +178,11 @@ public class StorageController {
     @PatchMapping("/rename-folder")
     public ResponseEntity<String> renameFolder(
             @RequestParam String oldFolderPath,
-            @RequestParam String newFolderPath
+            @RequestParam String newFolderPath,
+            Authentication authentication
     ) {
         try {
-            service.renameFolder(oldFolderPath, newFolderPath);
+            service.renameFolder(oldFolderPath, newFolderPath, authentication.getName());
             return ResponseEntity.ok("Folder renamed successfully");
         } catch (Exception e) {
             e.printStackTrace();
@@ -149,9 +192,9 @@ public class StorageController {
     }
 
     @DeleteMapping("/delete-folder")
-    public ResponseEntity<String> deleteFolder(@RequestParam String folderPath) {
+    public ResponseEntity<String> deleteFolder(@RequestParam String folderPath, Authentication authentication) {
         try {
-            service.deleteFolder(folderPath);
+            service.deleteFolder(folderPath, authentication.getName());
             return ResponseEntity.ok("Folder deleted successfully");
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,19 @@
+package com.daniel.backend.file.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileVersionDto {
+    private Long id;
+    private int versionNumber;
+    private long size;
+    private String contentType;
+    private LocalDateTime uploadedAt;
+    private boolean current;
+}
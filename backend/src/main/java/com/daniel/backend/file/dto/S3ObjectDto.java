@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Data
 @AllArgsConstructor
@@ -15,5 +17,10 @@ public class S3ObjectDto {
     private Long size;
     private Instant lastModified;
     private String displayName;
+
+    // Used by the listing projection queries, which select the raw upload timestamp.
+    public S3ObjectDto(Long id, String key, Long size, LocalDateTime uploadedAt, String displayName) {
+        this(id, key, size, uploadedAt != null ? uploadedAt.atZone(ZoneId.systemDefault()).toInstant() : null, displayName);
+    }
 }
 
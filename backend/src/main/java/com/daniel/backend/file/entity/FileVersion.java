@@ -0,0 +1,48 @@
+package com.daniel.backend.file.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_version", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_file_version_file_number", columnNames = {"file_id", "version_number"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FileVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_version_seq")
+    @SequenceGenerator(name = "file_version_seq", sequenceName = "file_version_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "version_number", nullable = false)
+    private int versionNumber;
+
+    @Column(name = "s3_key", nullable = false)
+    private String s3Key;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "checksum_sha256")
+    private String checksumSha256;
+
+    @Column(name = "checksum_crc32c")
+    private String checksumCrc32c;
+
+    private LocalDateTime uploadedAt;
+}
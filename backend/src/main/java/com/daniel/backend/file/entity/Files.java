@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_owner_display_name", columnList = "owner_email, display_name")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,7 +21,8 @@ import java.util.List;
 public class Files {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "files_seq")
+    @SequenceGenerator(name = "files_seq", sequenceName = "files_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "s3_key")
@@ -44,5 +47,26 @@ public class Files {
     @Column(nullable = false)
     private long size;
 
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "checksum_sha256")
+    private String checksumSha256;
+
+    @Column(name = "checksum_crc32c")
+    private String checksumCrc32c;
+
     private LocalDateTime uploadedAt;
+
+    @Column(name = "current_version_id")
+    private Long currentVersionId;
+
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+
+    @Column(name = "access_count", columnDefinition = "bigint default 0 not null")
+    private long accessCount;
+
+    @Column(name = "storage_class")
+    private String storageClass;
 }
@@ -0,0 +1,69 @@
+package com.daniel.backend.file.filter;
+
+import com.daniel.backend.file.service.TransferLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.security.Principal;
+
+@Component
+public class TransferLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = TransferLimitInterceptor.class.getName() + ".permit";
+
+    @Autowired
+    private TransferLimiter transferLimiter;
+
+    @Value("${file.transfer.retry-after-seconds}")
+    private int retryAfterSeconds;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Revoking a public link shares the download path but is not a transfer.
+        if (HttpMethod.DELETE.matches(request.getMethod())) {
+            return true;
+        }
+
+        // Async dispatches of a streaming response come through here again with the permit already held.
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+
+        TransferLimiter.Permit permit = transferLimiter.tryAcquire(transferKey(request));
+        if (permit == null) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\": \"Too many concurrent transfers\"}");
+            return false;
+        }
+
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit instanceof TransferLimiter.Permit transferPermit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            transferPermit.release();
+        }
+    }
+
+    private String transferKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return principal.getName();
+        }
+        return TransferLimiter.ANONYMOUS_PREFIX + request.getRemoteAddr();
+    }
+}
@@ -1,9 +1,19 @@
 package com.daniel.backend.file.repo;
 
+import com.daniel.backend.file.dto.S3ObjectDto;
 import com.daniel.backend.file.entity.Files;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +23,50 @@ public interface FileRepo extends JpaRepository<Files, Long> {
 
     Optional<Files> findById(Long id);
 
-    List<Files> findByOwnerEmailAndDeletedAtIsNull(String email);
-    
-    List<Files> findByOwnerEmailAndDeletedAtIsNotNull(String email);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Files f WHERE f.id = :id")
+    Optional<Files> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT new com.daniel.backend.file.dto.S3ObjectDto(f.id, f.s3Key, f.size, f.uploadedAt, f.displayName) " +
+            "FROM Files f WHERE f.owner.email = :email AND f.deletedAt IS NULL")
+    List<S3ObjectDto> findListingByOwnerEmail(@Param("email") String email);
+
+    @Query("SELECT new com.daniel.backend.file.dto.S3ObjectDto(f.id, f.s3Key, f.size, f.uploadedAt, f.displayName) " +
+            "FROM Files f WHERE f.owner.email = :email AND f.deletedAt IS NOT NULL")
+    List<S3ObjectDto> findTrashListingByOwnerEmail(@Param("email") String email);
+
+    List<Files> findTop100ByContentTypeIsNullOrderByIdAsc();
+
+    List<Files> findAllByIdInAndOwnerEmail(Collection<Long> ids, String email);
+
+    List<Files> findByOwnerEmailAndDisplayNameStartingWith(String email, String prefix);
+
+    @Query("SELECT f.owner.email FROM Files f WHERE f.id = :id")
+    Optional<String> findOwnerEmailById(@Param("id") Long id);
+
+    Optional<Files> findFirstByOwnerEmailAndDisplayNameAndDeletedAtIsNullOrderByIdDesc(String email, String displayName);
+
+    @Query("SELECT f FROM Files f WHERE f.id > :afterId " +
+            "AND (f.storageClass IS NULL OR f.storageClass = :hotClass) " +
+            "AND f.size >= :minSize " +
+            "AND COALESCE(f.lastAccessedAt, f.uploadedAt) < :cutoff " +
+            "ORDER BY f.id")
+    List<Files> findTieringCandidates(
+            @Param("afterId") Long afterId,
+            @Param("hotClass") String hotClass,
+            @Param("minSize") long minSize,
+            @Param("cutoff") LocalDateTime cutoff,
+            Pageable pageable
+    );
+
+    // Only touches storage_class, and only while the row still points at the copied object.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Files f SET f.storageClass = :storageClass WHERE f.id = :id AND f.s3Key = :s3Key")
+    int updateStorageClass(
+            @Param("id") Long id,
+            @Param("s3Key") String s3Key,
+            @Param("storageClass") String storageClass
+    );
 }
 
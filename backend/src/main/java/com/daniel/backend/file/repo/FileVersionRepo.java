@@ -0,0 +1,16 @@
+package com.daniel.backend.file.repo;
+
+import com.daniel.backend.file.entity.FileVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileVersionRepo extends JpaRepository<FileVersion, Long> {
+
+    List<FileVersion> findByFileIdOrderByVersionNumberDesc(Long fileId);
+
+    Optional<FileVersion> findTopByFileIdOrderByVersionNumberDesc(Long fileId);
+}
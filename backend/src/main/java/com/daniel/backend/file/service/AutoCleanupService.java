@@ -25,7 +25,7 @@ public class AutoCleanupService {
 
         for (var file : filesToDelete) {
             try {
-                storageService.permanentlyDeleteFile(file.getS3Key());
+                storageService.purgeTrashedFile(file.getS3Key());
             } catch (Exception e) {
                 System.err.println("Failed to permanently delete file: " + file.getS3Key());
             }
@@ -0,0 +1,160 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.sharing.dto.ShareStatus;
+import com.daniel.backend.sharing.repository.FilePermissionRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.AccessDeniedException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single place that decides what a user may do with a file. The owner may read and
+ * change it, recipients of an accepted share may read it. Decisions are cached per
+ * (user, file) and dropped whenever a share, revoke, accept/decline or delete touches
+ * the pair; the TTL only bounds staleness across instances.
+ * <p>
+ * Decisions are resolved outside the cache so JDBC never runs inside a Caffeine
+ * compute, which would pin the calling virtual thread. Instead of removing keys,
+ * an invalidation stamps the file with a logical clock, and any decision resolved
+ * before that stamp is treated as a miss. That covers every user's decision on the
+ * file without scanning the cache, including one still being resolved.
+ */
+@Service
+public class FileAccessService {
+
+    public enum Access { NONE, READ, WRITE }
+
+    private final FileRepo fileRepo;
+    private final FilePermissionRepo filePermissionRepo;
+    private final Cache<AccessKey, Decision> decisions;
+    private final Cache<Long, Long> invalidatedAt;
+    private final AtomicLong clock = new AtomicLong();
+
+    public FileAccessService(
+            FileRepo fileRepo,
+            FilePermissionRepo filePermissionRepo,
+            @Value("${file.access-cache.max-size}") long maxSize,
+            @Value("${file.access-cache.ttl-seconds}") long ttlSeconds
+    ) {
+        this.fileRepo = fileRepo;
+        this.filePermissionRepo = filePermissionRepo;
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        // Outlives any decision it can veto; the slack covers a decision written just after the stamp.
+        this.invalidatedAt = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds * 2))
+                .build();
+    }
+
+    public Access accessOf(String email, Long fileId) {
+        if (email == null || fileId == null) {
+            return Access.NONE;
+        }
+        AccessKey key = new AccessKey(normalize(email), fileId);
+        Decision cached = decisions.getIfPresent(key);
+        if (cached != null && isCurrent(cached, fileId)) {
+            return cached.access();
+        }
+
+        long resolvedAt = clock.get();
+        Access access = resolve(key);
+        decisions.put(key, new Decision(access, resolvedAt));
+        return access;
+    }
+
+    public boolean canRead(String email, Long fileId) {
+        return accessOf(email, fileId) != Access.NONE;
+    }
+
+    public boolean canWrite(String email, Long fileId) {
+        return accessOf(email, fileId) == Access.WRITE;
+    }
+
+    public void requireRead(String email, Long fileId) throws AccessDeniedException {
+        if (!canRead(email, fileId)) {
+            throw new AccessDeniedException("You do not have access to this file");
+        }
+    }
+
+    public void requireWrite(String email, Long fileId) throws AccessDeniedException {
+        requireWrite(email, fileId, "Only the owner can modify this file");
+    }
+
+    public void requireWrite(String email, Long fileId, String message) throws AccessDeniedException {
+        if (!canWrite(email, fileId)) {
+            throw new AccessDeniedException(message);
+        }
+    }
+
+    public void invalidate(String email, Long fileId) {
+        AccessKey key = new AccessKey(normalize(email), fileId);
+        afterCommit(() -> {
+            stamp(fileId);
+            decisions.invalidate(key);
+        });
+    }
+
+    public void invalidateFiles(Collection<Long> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(fileIds);
+        afterCommit(() -> ids.forEach(this::stamp));
+    }
+
+    private void stamp(Long fileId) {
+        long now = clock.incrementAndGet();
+        invalidatedAt.asMap().merge(fileId, now, Math::max);
+    }
+
+    private boolean isCurrent(Decision decision, Long fileId) {
+        Long stamp = invalidatedAt.getIfPresent(fileId);
+        return stamp == null || decision.resolvedAt() >= stamp;
+    }
+
+    private Access resolve(AccessKey key) {
+        String ownerEmail = fileRepo.findOwnerEmailById(key.fileId()).orElse(null);
+        if (ownerEmail == null) {
+            return Access.NONE;
+        }
+        if (normalize(ownerEmail).equals(key.email())) {
+            return Access.WRITE;
+        }
+        return filePermissionRepo.existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus(key.fileId(), key.email(), ShareStatus.ACCEPTED)
+                ? Access.READ
+                : Access.NONE;
+    }
+
+    // Invalidated now and again after commit, so a check racing the transaction cannot cache the old answer.
+    private static void afterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record AccessKey(String email, Long fileId) {}
+
+    private record Decision(Access access, long resolvedAt) {}
+}
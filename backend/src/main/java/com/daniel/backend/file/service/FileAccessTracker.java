@@ -0,0 +1,95 @@
+package com.daniel.backend.file.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for download statistics. Downloads only touch the in-memory
+ * map; the accumulated deltas are written to the files table in JDBC batches.
+ */
+@Component
+public class FileAccessTracker {
+
+    private static final String FLUSH_SQL =
+            "UPDATE files SET access_count = access_count + ?, " +
+            "last_accessed_at = GREATEST(COALESCE(last_accessed_at, ?), ?) " +
+            "WHERE id = ?";
+
+    private final Map<Long, AccessDelta> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StorageTieringService storageTieringService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public void recordAccess(Long fileId) {
+        if (fileId == null) {
+            return;
+        }
+        pending.merge(fileId, new AccessDelta(1, LocalDateTime.now()), AccessDelta::plus);
+    }
+
+    @Scheduled(fixedDelayString = "${file.access.flush-interval-ms}")
+    public void flush() {
+        Map<Long, AccessDelta> flushing = new HashMap<>();
+        List<Object[]> rows = new ArrayList<>();
+
+        for (Long fileId : pending.keySet()) {
+            // remove() hands over the delta atomically; hits recorded afterwards start a new one.
+            AccessDelta delta = pending.remove(fileId);
+            if (delta != null) {
+                Timestamp lastAccessedAt = Timestamp.valueOf(delta.lastAccessedAt());
+                flushing.put(fileId, delta);
+                rows.add(new Object[]{delta.hits(), lastAccessedAt, lastAccessedAt, fileId});
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            // All or nothing, so deltas handed back after a failure are never counted twice.
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, rows));
+        } catch (Exception e) {
+            // Handed back so the hits go out with the next flush instead of being lost.
+            flushing.forEach((fileId, delta) -> pending.merge(fileId, delta, AccessDelta::plus));
+            System.err.println("Failed to flush access stats for " + rows.size() + " files: " + e.getMessage());
+            return;
+        }
+        storageTieringService.warm(flushing.keySet());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private record AccessDelta(long hits, LocalDateTime lastAccessedAt) {
+
+        private AccessDelta plus(AccessDelta other) {
+            return new AccessDelta(
+                    hits + other.hits,
+                    lastAccessedAt.isAfter(other.lastAccessedAt) ? lastAccessedAt : other.lastAccessedAt
+            );
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.file.repo.FileRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.List;
+
+/**
+ * Fills in size and content type for files uploaded before they were recorded at
+ * upload time, so that request paths never have to ask S3 for them.
+ */
+@Service
+public class FileMetadataBackfillService {
+
+    @Autowired
+    private FileRepo fileRepo;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${AWS_BUCKET_NAME}")
+    private String bucketName;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLegacyMetadata() {
+        List<Files> batch;
+        while (!(batch = fileRepo.findTop100ByContentTypeIsNullOrderByIdAsc()).isEmpty()) {
+            for (Files file : batch) {
+                try {
+                    HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(file.getS3Key())
+                            .build());
+
+                    file.setSize(head.contentLength());
+                    file.setContentType(head.contentType() != null && !head.contentType().isBlank()
+                            ? head.contentType()
+                            : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+                } catch (Exception e) {
+                    System.err.println("Failed to backfill metadata for file: " + file.getS3Key() + " - " + e.getMessage());
+                    file.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+                }
+            }
+            fileRepo.saveAll(batch);
+        }
+    }
+}
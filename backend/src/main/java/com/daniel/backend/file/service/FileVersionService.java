@@ -0,0 +1,245 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.audit.service.AuditLogService;
+import com.daniel.backend.file.dto.FileVersionDto;
+import com.daniel.backend.file.entity.FileVersion;
+import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.repo.FileVersionRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.StorageClass;
+
+import java.nio.file.AccessDeniedException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A {@link Files} row is always the head version of a path: listings keep reading the
+ * files table alone, while older uploads live in {@code file_version} and point at
+ * their own immutable S3 objects.
+ */
+@Service
+public class FileVersionService {
+
+    @Value("${AWS_BUCKET_NAME}")
+    private String bucketName;
+
+    @Value("${file.versions.max-retained}")
+    private int maxRetainedVersions;
+
+    @Autowired
+    private FileRepo fileRepo;
+
+    @Autowired
+    private FileVersionRepo fileVersionRepo;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private FileAccessService fileAccessService;
+
+    public Optional<Files> findHead(String ownerEmail, String displayName) {
+        return fileRepo.findFirstByOwnerEmailAndDisplayNameAndDeletedAtIsNullOrderByIdDesc(ownerEmail, displayName);
+    }
+
+    public void recordInitialVersion(Files file) {
+        FileVersion version = fileVersionRepo.save(snapshotOf(file, 1));
+        file.setCurrentVersionId(version.getId());
+        fileRepo.save(file);
+    }
+
+    public FileVersion addVersion(Files head, String s3Key, UploadInspector.UploadMetadata metadata) {
+        // Concurrent uploads to the same path queue on the head row, so each sees the other's version number.
+        fileRepo.findByIdForUpdate(head.getId())
+                .orElseThrow(() -> new RuntimeException("File not found"));
+
+        Optional<FileVersion> latest = fileVersionRepo.findTopByFileIdOrderByVersionNumberDesc(head.getId());
+        if (latest.isEmpty()) {
+            // Files uploaded before versioning existed get their current object recorded as version 1.
+            latest = Optional.of(fileVersionRepo.save(snapshotOf(head, 1)));
+            head.setCurrentVersionId(latest.get().getId());
+        }
+
+        int nextVersionNumber = latest.get().getVersionNumber() + 1;
+
+        FileVersion version = fileVersionRepo.save(FileVersion.builder()
+                .fileId(head.getId())
+                .versionNumber(nextVersionNumber)
+                .s3Key(s3Key)
+                .size(metadata.size())
+                .contentType(metadata.contentType())
+                .checksumSha256(metadata.checksumSha256())
+                .checksumCrc32c(metadata.checksumCrc32c())
+                .uploadedAt(LocalDateTime.now())
+                .build());
+
+        makeHead(head, version, StorageClass.STANDARD.toString());
+        fileRepo.save(head);
+
+        pruneVersions(head);
+        return version;
+    }
+
+    public List<FileVersionDto> listVersions(String s3Key, String requesterEmail) throws AccessDeniedException {
+        Files head = fileRepo.findByS3Key(s3Key)
+                .orElseThrow(() -> new RuntimeException("File not found"));
+
+        fileAccessService.requireWrite(requesterEmail, head.getId(), "Only the owner can view file versions");
+
+        if (head.getCurrentVersionId() == null) {
+            return List.of(new FileVersionDto(null, 1, head.getSize(), head.getContentType(), head.getUploadedAt(), true));
+        }
+
+        return fileVersionRepo.findByFileIdOrderByVersionNumberDesc(head.getId())
+                .stream()
+                .map(version -> new FileVersionDto(
+                        version.getId(),
+                        version.getVersionNumber(),
+                        version.getSize(),
+                        version.getContentType(),
+                        version.getUploadedAt(),
+                        version.getId().equals(head.getCurrentVersionId())
+                ))
+                .toList();
+    }
+
+    @Transactional
+    public String restoreVersion(Long versionId, String requesterEmail) throws AccessDeniedException {
+        FileVersion version = fileVersionRepo.findById(versionId)
+                .orElseThrow(() -> new RuntimeException("Version not found"));
+
+        fileAccessService.requireWrite(requesterEmail, version.getFileId(), "Only the owner can restore file versions");
+
+        // Older objects may have been tiered down while they were the head; asked before the row lock is taken.
+        String storageClass = storageClassOf(version.getS3Key());
+
+        Files head = fileRepo.findByIdForUpdate(version.getFileId())
+                .orElseThrow(() -> new RuntimeException("File not found"));
+
+        makeHead(head, version, storageClass);
+        fileRepo.save(head);
+
+        auditLogService.log(
+                "FILE_VERSION_RESTORE",
+                head.getOwner().getEmail(),
+                head,
+                "Restored version " + version.getVersionNumber() + " of file: " + head.getDisplayName()
+        );
+
+        return "Restored version " + version.getVersionNumber() + ": " + head.getS3Key();
+    }
+
+    public void moveCurrentVersion(Files head, String newS3Key) {
+        if (head.getCurrentVersionId() == null) {
+            return;
+        }
+        fileVersionRepo.findById(head.getCurrentVersionId()).ifPresent(version -> {
+            version.setS3Key(newS3Key);
+            fileVersionRepo.save(version);
+        });
+    }
+
+    public void deleteAllVersions(Files head) {
+        List<FileVersion> versions = fileVersionRepo.findByFileIdOrderByVersionNumberDesc(head.getId());
+        fileVersionRepo.deleteAll(versions);
+        deleteObjectsAfterCommit(versions.stream()
+                .map(FileVersion::getS3Key)
+                .filter(s3Key -> !s3Key.equals(head.getS3Key()))
+                .toList());
+    }
+
+    private void pruneVersions(Files head) {
+        List<FileVersion> expired = fileVersionRepo.findByFileIdOrderByVersionNumberDesc(head.getId())
+                .stream()
+                .skip(maxRetainedVersions)
+                .filter(version -> !version.getId().equals(head.getCurrentVersionId()))
+                .toList();
+
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        fileVersionRepo.deleteAll(expired);
+        deleteObjectsAfterCommit(expired.stream().map(FileVersion::getS3Key).toList());
+    }
+
+    private void makeHead(Files head, FileVersion version, String storageClass) {
+        head.setS3Key(version.getS3Key());
+        head.setSize(version.getSize());
+        head.setContentType(version.getContentType());
+        head.setChecksumSha256(version.getChecksumSha256());
+        head.setChecksumCrc32c(version.getChecksumCrc32c());
+        head.setUploadedAt(version.getUploadedAt());
+        head.setCurrentVersionId(version.getId());
+        head.setStorageClass(storageClass);
+    }
+
+    // Null when S3 cannot say, which tiering treats like a never-tiered file.
+    private String storageClassOf(String s3Key) {
+        try {
+            String storageClass = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build()).storageClassAsString();
+            // S3 leaves the header out for STANDARD objects.
+            return storageClass != null ? storageClass : StorageClass.STANDARD.toString();
+        } catch (Exception e) {
+            System.err.println("Failed to read storage class of version key " + s3Key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private FileVersion snapshotOf(Files file, int versionNumber) {
+        return FileVersion.builder()
+                .fileId(file.getId())
+                .versionNumber(versionNumber)
+                .s3Key(file.getS3Key())
+                .size(file.getSize())
+                .contentType(file.getContentType())
+                .checksumSha256(file.getChecksumSha256())
+                .checksumCrc32c(file.getChecksumCrc32c())
+                .uploadedAt(file.getUploadedAt())
+                .build();
+    }
+
+    // Keeps S3 calls out of the caller's transaction, and keeps the objects if it rolls back.
+    private void deleteObjectsAfterCommit(List<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            s3Keys.forEach(this::deleteObject);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                s3Keys.forEach(FileVersionService.this::deleteObject);
+            }
+        });
+    }
+
+    private void deleteObject(String s3Key) {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("S3 delete failed for version key " + s3Key + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,34 +1,40 @@
 package com.daniel.backend.file.service;
 
+import com.daniel.backend.audit.entity.AuditLog;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.auth.entity.Users;
 import com.daniel.backend.auth.repository.UserRepo;
+import com.daniel.backend.file.dto.FileVersionDto;
 import com.daniel.backend.file.dto.S3ObjectDto;
+import com.daniel.backend.file.entity.FileVersion;
 import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.notification.dto.NotificationType;
+import com.daniel.backend.notification.service.NotificationService;
 import com.daniel.backend.publicsharing.repo.PublicFileAccessTokenRepo;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.nio.file.AccessDeniedException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class StorageService {
 
+    private static final int DELETE_OBJECTS_MAX_KEYS = 1000;
+
     @Value("${AWS_BUCKET_NAME}")
     private String bucketName;
 
@@ -37,13 +43,26 @@ public class StorageService {
     private final UserRepo userRepo;
     private final AuditLogService auditLogService;
     private final PublicFileAccessTokenRepo publicFileAccessTokenRepo;
+    private final UploadInspector uploadInspector;
+    private final FileVersionService fileVersionService;
+    private final FileAccessTracker fileAccessTracker;
+    private final FileAccessService fileAccessService;
+    private final NotificationService notificationService;
+    // S3 calls run outside transactions; only the DB work before/after them holds a connection.
+    private final TransactionTemplate transactionTemplate;
 
     public StorageService(
         S3Client s3Client,
         FileRepo fileRepo,
         UserRepo userRepo,
         AuditLogService auditLogService,
-        PublicFileAccessTokenRepo publicFileAccessTokenRepo
+        PublicFileAccessTokenRepo publicFileAccessTokenRepo,
+        UploadInspector uploadInspector,
+        FileVersionService fileVersionService,
+        FileAccessTracker fileAccessTracker,
+        FileAccessService fileAccessService,
+        NotificationService notificationService,
+        PlatformTransactionManager transactionManager
     ){
 
         this.s3Client = s3Client;
@@ -51,11 +70,15 @@ public class StorageService {
         this.userRepo = userRepo;
         this.auditLogService = auditLogService;
         this.publicFileAccessTokenRepo = publicFileAccessTokenRepo;
+        this.uploadInspector = uploadInspector;
+        this.fileVersionService = fileVersionService;
+        this.fileAccessTracker = fileAccessTracker;
+        this.fileAccessService = fileAccessService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public String uploadFile(MultipartFile file, String ownerEmail) {
-        File fileObj = convertMultiPartFileToFile(file);
-
         String originalFileName = file.getOriginalFilename();
         if (originalFileName == null) {
             originalFileName = "unknown-file";
@@ -73,13 +96,48 @@ public class StorageService {
         String timestampFileName = System.currentTimeMillis() + "-" + actualFileName;
         String s3Key = (folderPath + timestampFileName).replaceAll("\\s+", "_");
 
+        UploadInspector.Inspection inspection = uploadInspector.begin(file);
+
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(s3Key)
+                .contentType(inspection.contentType())
+                .contentLength(file.getSize())
+                .checksumAlgorithm(ChecksumAlgorithm.CRC32_C)
                 .build();
 
-        s3Client.putObject(putObjectRequest, RequestBody.fromFile(fileObj));
-        fileObj.delete();
+        PutObjectResponse putObjectResponse = s3Client.putObject(putObjectRequest, inspection.requestBody());
+        UploadInspector.UploadMetadata uploadMetadata = inspection.complete();
+        verifyStoredChecksum(s3Key, uploadMetadata, putObjectResponse);
+
+        String finalActualFileName = actualFileName;
+        String finalOriginalFileName = originalFileName;
+        return transactionTemplate.execute(status ->
+                recordUpload(ownerEmail, finalOriginalFileName, finalActualFileName, s3Key, uploadMetadata));
+    }
+
+    private String recordUpload(
+            String ownerEmail,
+            String originalFileName,
+            String actualFileName,
+            String s3Key,
+            UploadInspector.UploadMetadata uploadMetadata
+    ) {
+        Optional<Files> existingHead = fileVersionService.findHead(ownerEmail, originalFileName);
+        if (existingHead.isPresent()) {
+            Files head = existingHead.get();
+            FileVersion version = fileVersionService.addVersion(head, s3Key, uploadMetadata);
+
+            auditLogService.log(
+                    "FILE_UPLOAD",
+                    ownerEmail,
+                    head,
+                    "Uploaded version " + version.getVersionNumber() + " of file: " + actualFileName
+            );
+            notifyOwner(NotificationType.FILE_UPLOADED, head.getId(), head.getDisplayName(), ownerEmail);
+
+            return "File uploaded successfully: " + s3Key;
+        }
 
         Users owner = userRepo.findByEmail(ownerEmail)
                 .orElseThrow(() -> new RuntimeException("Owner not found"));
@@ -88,10 +146,16 @@ public class StorageService {
                 .s3Key(s3Key)
                 .displayName(originalFileName)
                 .owner(owner)
+                .size(uploadMetadata.size())
+                .contentType(uploadMetadata.contentType())
+                .checksumSha256(uploadMetadata.checksumSha256())
+                .checksumCrc32c(uploadMetadata.checksumCrc32c())
+                .storageClass(StorageClass.STANDARD.toString())
                 .uploadedAt(java.time.LocalDateTime.now())
                 .build();
 
         fileRepo.save(metadata);
+        fileVersionService.recordInitialVersion(metadata);
 
         auditLogService.log(
                 "FILE_UPLOAD",
@@ -99,25 +163,44 @@ public class StorageService {
                 metadata,
                 "Uploaded file: " + actualFileName
         );
+        notifyOwner(NotificationType.FILE_UPLOADED, metadata.getId(), metadata.getDisplayName(), ownerEmail);
 
         return "File uploaded successfully: " + s3Key;
     }
 
-    public byte[] downloadFile(String fileName) {
-        if(!doesFileExist(fileName)) {
-            throw new RuntimeException("File not found: " + fileName);
+    private void verifyStoredChecksum(String s3Key, UploadInspector.UploadMetadata uploadMetadata, PutObjectResponse response) {
+        String storedChecksum = response.checksumCRC32C();
+        if (storedChecksum == null || storedChecksum.equals(uploadMetadata.checksumCrc32c())) {
+            return;
+        }
+
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("Failed to remove corrupted upload " + s3Key + ": " + e.getMessage());
         }
+        throw new RuntimeException("Checksum mismatch while uploading " + s3Key);
+    }
 
+    public byte[] downloadFile(Files file) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
-                .key(fileName)
+                .key(file.getS3Key())
                 .build();
 
-        ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObjectAsBytes(getObjectRequest);
-        return objectBytes.asByteArray();
+        try {
+            ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObjectAsBytes(getObjectRequest);
+            fileAccessTracker.recordAccess(file.getId());
+            return objectBytes.asByteArray();
+        } catch (NoSuchKeyException e) {
+            throw new RuntimeException("File not found: " + file.getS3Key());
+        }
     }
 
-    public void renameFolder(String oldFolderPath, String newFolderPath) {
+    public void renameFolder(String oldFolderPath, String newFolderPath, String ownerEmail) {
         if (!oldFolderPath.endsWith("/")) {
             oldFolderPath += "/";
         }
@@ -125,10 +208,7 @@ public class StorageService {
             newFolderPath += "/";
         }
 
-        String finalOldFolderPath = oldFolderPath;
-        List<Files> filesInFolder = fileRepo.findAll().stream()
-                .filter(file -> file.getDisplayName().startsWith(finalOldFolderPath))
-                .toList();
+        List<Files> filesInFolder = fileRepo.findByOwnerEmailAndDisplayNameStartingWith(ownerEmail, oldFolderPath);
 
         for (Files file : filesInFolder) {
             try {
@@ -156,124 +236,104 @@ public class StorageService {
 
                 file.setS3Key(newS3Key);
                 file.setDisplayName(newDisplayName);
-                fileRepo.save(file);
-
-                auditLogService.log(
-                        "FILE_MOVE",
-                        file.getOwner().getEmail(),
-                        null,
-                        "Moved file from '" + getBaseName(oldDisplayName) + "' to '" + getBaseName(newDisplayName) + "'"
-                );
+                transactionTemplate.executeWithoutResult(status -> {
+                    fileRepo.save(file);
+                    fileVersionService.moveCurrentVersion(file, newS3Key);
+
+                    auditLogService.log(
+                            "FILE_MOVE",
+                            file.getOwner().getEmail(),
+                            null,
+                            "Moved file from '" + getBaseName(oldDisplayName) + "' to '" + getBaseName(newDisplayName) + "'"
+                    );
+                });
 
             } catch (Exception e) {
                 System.err.println("Failed to move file: " + file.getS3Key() + " - " + e.getMessage());
                 throw new RuntimeException("Failed to rename folder: " + e.getMessage());
             }
         }
+
+        if (!filesInFolder.isEmpty()) {
+            notifyOwner(NotificationType.FOLDER_RENAMED, null, newFolderPath, ownerEmail);
+        }
     }
 
-    public void deleteFolder(String folderPath) {
+    public void deleteFolder(String folderPath, String ownerEmail) {
         if (!folderPath.endsWith("/")) {
             folderPath += "/";
         }
 
         String finalFolderPath = folderPath;
-        List<Files> filesInFolder = fileRepo.findAll().stream()
-                .filter(file -> file.getDisplayName().startsWith(finalFolderPath))
-                .toList();
-
-        for (Files file : filesInFolder) {
-            try {
-                String s3Key = file.getS3Key();
-                String email = file.getOwner().getEmail();
+        List<Files> filesInFolder = fileRepo.findByOwnerEmailAndDisplayNameStartingWith(ownerEmail, folderPath);
 
-                if (doesFileExist(s3Key)) {
-                    DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                            .bucket(bucketName)
-                            .key(s3Key)
-                            .build();
+        Set<String> failedKeys = deleteObjects(filesInFolder.stream().map(Files::getS3Key).toList());
 
-                    s3Client.deleteObject(deleteRequest);
-                }
+        List<Files> deletedFiles = filesInFolder.stream()
+                .filter(file -> !failedKeys.contains(file.getS3Key()))
+                .toList();
 
-                auditLogService.log(
+        transactionTemplate.executeWithoutResult(status -> {
+            List<AuditLog> auditEntries = new ArrayList<>();
+            for (Files file : deletedFiles) {
+                publicFileAccessTokenRepo.deleteAllByFile(file);
+                fileVersionService.deleteAllVersions(file);
+                auditEntries.add(auditLogService.entry(
                         "FILE_DELETE",
-                        email,
+                        file.getOwner().getEmail(),
                         null,
                         "Deleted file as part of folder removal: " + getBaseName(file.getDisplayName())
-                );
-
-                fileRepo.delete(file);
+                ));
+            }
 
-            } catch (Exception e) {
-                System.err.println("Failed to delete file: " + file.getS3Key() + " - " + e.getMessage());
+            fileRepo.deleteAll(deletedFiles);
+            auditLogService.logAll(auditEntries);
+            fileAccessService.invalidateFiles(deletedFiles.stream().map(Files::getId).toList());
+            if (!deletedFiles.isEmpty()) {
+                notifyOwner(NotificationType.FOLDER_DELETED, null, finalFolderPath, ownerEmail);
             }
-        }
+        });
     }
 
-    private boolean doesFileExist(String fileName) {
-        try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileName)
-                    .build();
-            s3Client.getObject(getObjectRequest);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
+    // Returns the keys S3 failed to delete; their rows are left in place.
+    private Set<String> deleteObjects(List<String> s3Keys) {
+        Set<String> failedKeys = new HashSet<>();
 
-    private File convertMultiPartFileToFile(MultipartFile file) {
-        String originalFileName = file.getOriginalFilename();
-        if (originalFileName == null) {
-            originalFileName = "unknown-file";
-        }
+        for (int from = 0; from < s3Keys.size(); from += DELETE_OBJECTS_MAX_KEYS) {
+            List<ObjectIdentifier> chunk = s3Keys.subList(from, Math.min(from + DELETE_OBJECTS_MAX_KEYS, s3Keys.size()))
+                    .stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
 
-        String actualFileName = originalFileName;
-        if (originalFileName.contains("/")) {
-            actualFileName = originalFileName.substring(originalFileName.lastIndexOf("/") + 1);
-        }
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(chunk).quiet(true).build())
+                        .build());
 
-        String safeFilename = System.currentTimeMillis() + "-" + Paths.get(actualFileName).getFileName();
-        File convertedFile = new File(System.getProperty("java.io.tmpdir"), safeFilename);
-        try (FileOutputStream fos = new FileOutputStream(convertedFile)) {
-            fos.write(file.getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Could not convert multipart file to file: " + e.getMessage());
+                for (S3Error error : response.errors()) {
+                    System.err.println("Failed to delete file: " + error.key() + " - " + error.message());
+                    failedKeys.add(error.key());
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to delete " + chunk.size() + " files: " + e.getMessage());
+                chunk.forEach(object -> failedKeys.add(object.key()));
+            }
         }
-        return convertedFile;
+
+        return failedKeys;
     }
 
+    @Transactional(readOnly = true)
     public List<S3ObjectDto> listObjects(String ownerEmail) {
-        List<Files> dbFiles = fileRepo.findByOwnerEmailAndDeletedAtIsNull(ownerEmail);
-
-        return getS3ObjectDtos(dbFiles);
+        return fileRepo.findListingByOwnerEmail(ownerEmail);
     }
 
 
-    private List<S3ObjectDto> mapDbFilesToDtos(List<Files> dbFiles, Map<String, S3Object> s3ObjectMap, List<S3ObjectDto> dtos) {
-        for (Files dbFile : dbFiles) {
-            S3Object s3Object = s3ObjectMap.get(dbFile.getS3Key());
-            if (s3Object != null) {
-                S3ObjectDto dto = new S3ObjectDto(
-                        dbFile.getId(),
-                        dbFile.getS3Key(),
-                        s3Object.size(),
-                        s3Object.lastModified(),
-                        dbFile.getDisplayName()
-                );
-                dtos.add(dto);
-            }
-        }
-
-        return dtos;
-    }
-
-    public void renameFile(String s3Key, String newDisplayName) {
+    public void renameFile(String s3Key, String newDisplayName, String requesterEmail) throws AccessDeniedException {
         Files metadata = fileRepo.findByS3Key(s3Key)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+        fileAccessService.requireWrite(requesterEmail, metadata.getId());
 
         String oldDisplayName = metadata.getDisplayName();
         metadata.setDisplayName(newDisplayName);
@@ -286,12 +346,18 @@ public class StorageService {
         );
 
         fileRepo.save(metadata);
+        notifyOwner(NotificationType.FILE_RENAMED, metadata.getId(), newDisplayName, metadata.getOwner().getEmail());
     }
 
-    public String getDisplayName(String s3Key) {
+    public Files getFileMetadata(String s3Key, String requesterEmail) throws AccessDeniedException {
         Files metadata = fileRepo.findByS3Key(s3Key)
                 .orElseThrow(() -> new RuntimeException("File not found in metadata"));
-        return metadata.getDisplayName();
+        fileAccessService.requireRead(requesterEmail, metadata.getId());
+        return metadata;
+    }
+
+    private void notifyOwner(NotificationType type, Long fileId, String displayName, String ownerEmail) {
+        notificationService.publish(type, fileId, displayName, ownerEmail, List.of(ownerEmail));
     }
 
     private String getBaseName(String displayName) {
@@ -302,9 +368,10 @@ public class StorageService {
         return displayName;
     }
 
-    public String softDeleteFile(String fileName) {
+    public String softDeleteFile(String fileName, String requesterEmail) throws AccessDeniedException {
         Files metadata = fileRepo.findByS3Key(fileName)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+        fileAccessService.requireWrite(requesterEmail, metadata.getId());
 
         metadata.setDeletedAt(LocalDateTime.now());
         fileRepo.save(metadata);
@@ -315,13 +382,15 @@ public class StorageService {
                 metadata,
                 "Soft-deleted file: " + getBaseName(metadata.getDisplayName())
         );
+        notifyOwner(NotificationType.FILE_TRASHED, metadata.getId(), metadata.getDisplayName(), metadata.getOwner().getEmail());
 
         return "File moved to trash: " + fileName;
     }
 
-    public String restoreFile(String fileName) {
+    public String restoreFile(String fileName, String requesterEmail) throws AccessDeniedException {
         Files metadata = fileRepo.findByS3Key(fileName)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+        fileAccessService.requireWrite(requesterEmail, metadata.getId());
 
         if (metadata.getDeletedAt() == null) {
             throw new RuntimeException("File is not in trash");
@@ -336,22 +405,44 @@ public class StorageService {
                 metadata,
                 "Restored file from trash: " + getBaseName(metadata.getDisplayName())
         );
+        notifyOwner(NotificationType.FILE_RESTORED, metadata.getId(), metadata.getDisplayName(), metadata.getOwner().getEmail());
 
         return "File restored from trash: " + fileName;
     }
 
-    @Transactional
-    public String permanentlyDeleteFile(String fileName) {
-        Files metadata = fileRepo.findByS3Key(fileName)
+    public String permanentlyDeleteFile(String fileName, String requesterEmail) throws AccessDeniedException {
+        Files file = fileRepo.findByS3Key(fileName)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+        fileAccessService.requireWrite(requesterEmail, file.getId());
 
-        if (metadata.getDeletedAt() == null) {
-            throw new RuntimeException("File must be in trash before permanent deletion");
-        }
+        return purgeTrashedFile(fileName);
+    }
+
+    // Also used by the trash cleanup job, which acts on behalf of the system rather than a user.
+    public String purgeTrashedFile(String fileName) {
+        Files metadata = transactionTemplate.execute(status -> {
+            Files file = fileRepo.findByS3Key(fileName)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
 
-        publicFileAccessTokenRepo.deleteAllByFile(metadata);
+            if (file.getDeletedAt() == null) {
+                throw new RuntimeException("File must be in trash before permanent deletion");
+            }
+
+            publicFileAccessTokenRepo.deleteAllByFile(file);
+            fileVersionService.deleteAllVersions(file);
+
+            fileRepo.delete(file);
+            fileAccessService.invalidateFiles(List.of(file.getId()));
 
-        fileRepo.delete(metadata);
+            auditLogService.log(
+                    "FILE_PERMANENT_DELETE",
+                    file.getOwner().getEmail(),
+                    file,
+                    "Permanently deleted file: " + getBaseName(file.getDisplayName())
+            );
+            notifyOwner(NotificationType.FILE_DELETED, file.getId(), file.getDisplayName(), file.getOwner().getEmail());
+            return file;
+        });
 
         try {
             s3Client.deleteObject(DeleteObjectRequest.builder()
@@ -362,31 +453,20 @@ public class StorageService {
             System.err.println("S3 delete failed for key " + metadata.getS3Key() + ": " + e.getMessage());
         }
 
-        auditLogService.log(
-                "FILE_PERMANENT_DELETE",
-                metadata.getOwner().getEmail(),
-                metadata,
-                "Permanently deleted file: " + getBaseName(metadata.getDisplayName())
-        );
-
         return "File permanently deleted: " + fileName;
     }
 
-    public List<S3ObjectDto> listTrashedFiles(String ownerEmail) {
-        List<Files> trashedFiles = fileRepo.findByOwnerEmailAndDeletedAtIsNotNull(ownerEmail);
-
-        return getS3ObjectDtos(trashedFiles);
+    public List<FileVersionDto> listVersions(String s3Key, String requesterEmail) throws AccessDeniedException {
+        return fileVersionService.listVersions(s3Key, requesterEmail);
     }
 
-    private List<S3ObjectDto> getS3ObjectDtos(List<Files> trashedFiles) {
-        ListObjectsV2Request request = ListObjectsV2Request.builder()
-                .bucket(bucketName)
-                .build();
-        List<S3Object> s3Objects = s3Client.listObjectsV2(request).contents();
-        Map<String, S3Object> s3ObjectMap = s3Objects.stream()
-                .collect(Collectors.toMap(S3Object::key, obj -> obj));
+    public String restoreVersion(Long versionId, String requesterEmail) throws AccessDeniedException {
+        return fileVersionService.restoreVersion(versionId, requesterEmail);
+    }
 
-        return mapDbFilesToDtos(trashedFiles, s3ObjectMap, new ArrayList<>());
+    @Transactional(readOnly = true)
+    public List<S3ObjectDto> listTrashedFiles(String ownerEmail) {
+        return fileRepo.findTrashListingByOwnerEmail(ownerEmail);
     }
 
-}
+}
\ No newline at end of file
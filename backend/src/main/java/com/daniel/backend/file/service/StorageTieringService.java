@@ -0,0 +1,94 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.file.repo.FileRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.StorageClass;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Moves files nobody has opened for a while to a cheaper storage class and back
+ * to STANDARD once they are downloaded again. The cold class must allow instant
+ * retrieval (STANDARD_IA, ONEZONE_IA, GLACIER_IR) because downloads read cold
+ * objects directly while the warm-up happens in the background.
+ */
+@Service
+public class StorageTieringService {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Value("${AWS_BUCKET_NAME}")
+    private String bucketName;
+
+    @Value("${file.tiering.cold-after-days}")
+    private int coldAfterDays;
+
+    @Value("${file.tiering.cold-storage-class}")
+    private String coldStorageClass;
+
+    // Infrequent-access classes bill small objects as 128KB, so tiering them saves nothing.
+    @Value("${file.tiering.min-size-bytes}")
+    private long minSizeBytes;
+
+    @Autowired
+    private FileRepo fileRepo;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Scheduled(cron = "${file.tiering.cron}")
+    public void tierColdFiles() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(coldAfterDays);
+        long afterId = 0L;
+
+        List<Files> candidates;
+        do {
+            candidates = fileRepo.findTieringCandidates(
+                    afterId, StorageClass.STANDARD.toString(), minSizeBytes, cutoff, PageRequest.of(0, BATCH_SIZE));
+
+            for (Files file : candidates) {
+                afterId = file.getId();
+                changeStorageClass(file, coldStorageClass);
+            }
+        } while (candidates.size() == BATCH_SIZE);
+    }
+
+    public void warm(Collection<Long> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+
+        fileRepo.findAllById(fileIds).stream()
+                .filter(file -> file.getStorageClass() != null)
+                .filter(file -> !StorageClass.STANDARD.toString().equals(file.getStorageClass()))
+                .forEach(file -> changeStorageClass(file, StorageClass.STANDARD.toString()));
+    }
+
+    private void changeStorageClass(Files file, String storageClass) {
+        try {
+            s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(file.getS3Key())
+                    .destinationBucket(bucketName)
+                    .destinationKey(file.getS3Key())
+                    .storageClass(StorageClass.fromValue(storageClass))
+                    .metadataDirective(MetadataDirective.COPY)
+                    .build());
+
+            // A targeted update: saving the entity would overwrite access stats and renames made during the copy.
+            fileRepo.updateStorageClass(file.getId(), file.getS3Key(), storageClass);
+        } catch (Exception e) {
+            System.err.println("Failed to move " + file.getS3Key() + " to " + storageClass + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.daniel.backend.file.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for uploads and downloads. Counters are plain CAS loops, so
+ * admitting or rejecting a transfer never blocks.
+ */
+@Component
+public class TransferLimiter {
+
+    public static final String ANONYMOUS_PREFIX = "anonymous:";
+
+    // Set by the sweep on an idle counter it removes, so a racing acquire cannot count against it.
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final int maxPerUser;
+    private final int maxGlobal;
+    private final AtomicInteger global = new AtomicInteger();
+    private final Map<String, AtomicInteger> perUser = new ConcurrentHashMap<>();
+    private final Counter rejectedGlobal;
+    private final Counter rejectedUser;
+
+    public TransferLimiter(
+            @Value("${file.transfer.max-concurrent-per-user}") int maxPerUser,
+            @Value("${file.transfer.max-concurrent-global}") int maxGlobal,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxPerUser = maxPerUser;
+        this.maxGlobal = maxGlobal;
+
+        Gauge.builder("transfers.active", global, AtomicInteger::get)
+                .description("Uploads and downloads currently in progress")
+                .register(meterRegistry);
+        this.rejectedGlobal = Counter.builder("transfers.rejected").tag("limit", "global").register(meterRegistry);
+        this.rejectedUser = Counter.builder("transfers.rejected").tag("limit", "user").register(meterRegistry);
+        // Only an aggregate: per-user tags would publish emails on /actuator/metrics and grow without bound.
+        Gauge.builder("transfers.active.users", perUser, TransferLimiter::countActiveUsers)
+                .description("Users and anonymous clients with a transfer in progress")
+                .register(meterRegistry);
+    }
+
+    public Permit tryAcquire(String user) {
+        if (!increment(global, maxGlobal)) {
+            rejectedGlobal.increment();
+            return null;
+        }
+
+        AtomicInteger counter = acquireUser(user);
+        if (counter == null) {
+            global.decrementAndGet();
+            rejectedUser.increment();
+            return null;
+        }
+
+        return new Permit(counter);
+    }
+
+    private AtomicInteger acquireUser(String user) {
+        while (true) {
+            AtomicInteger counter = perUser.computeIfAbsent(user, key -> new AtomicInteger());
+            int current = counter.get();
+            if (current == RETIRED) {
+                // Removed by the sweep after we looked it up; the next lookup creates a fresh one.
+                continue;
+            }
+            if (current >= maxPerUser) {
+                return null;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return counter;
+            }
+        }
+    }
+
+    public int activeTransfers(String user) {
+        AtomicInteger counter = perUser.get(user);
+        return counter != null ? Math.max(counter.get(), 0) : 0;
+    }
+
+    // Idle counters are dropped here rather than on release to keep the hot path free of map writes.
+    @Scheduled(fixedDelay = 10_000)
+    public void sweepIdleUsers() {
+        // Retiring with a CAS from 0 fails if an acquire got in first, in which case the counter stays.
+        perUser.keySet().forEach(user ->
+                perUser.computeIfPresent(user, (key, counter) -> counter.compareAndSet(0, RETIRED) ? null : counter));
+    }
+
+    private static long countActiveUsers(Map<String, AtomicInteger> perUser) {
+        return perUser.values().stream().filter(counter -> counter.get() > 0).count();
+    }
+
+    private static boolean increment(AtomicInteger counter, int limit) {
+        int current;
+        do {
+            current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public final class Permit {
+
+        private final AtomicInteger userCounter;
+        private boolean released;
+
+        private Permit(AtomicInteger userCounter) {
+            this.userCounter = userCounter;
+        }
+
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            userCounter.decrementAndGet();
+            global.decrementAndGet();
+        }
+    }
+}
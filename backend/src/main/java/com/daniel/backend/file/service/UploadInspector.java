@@ -0,0 +1,233 @@
+package com.daniel.backend.file.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes size, checksums and the sniffed MIME type of an upload while it is
+ * being streamed to S3, so the bytes are only read once.
+ */
+@Component
+public class UploadInspector {
+
+    private static final int SNIFF_LENGTH = 512;
+
+    public Inspection begin(MultipartFile file) {
+        byte[] header;
+        try (InputStream in = file.getInputStream()) {
+            header = in.readNBytes(SNIFF_LENGTH);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read uploaded file: " + e.getMessage());
+        }
+
+        String contentType = sniffContentType(header, file.getOriginalFilename(), file.getContentType());
+        return new Inspection(file, contentType);
+    }
+
+    static String sniffContentType(byte[] header, String fileName, String declaredContentType) {
+        String magic = fromMagicBytes(header);
+        if (magic != null) {
+            return magic;
+        }
+
+        String byName = fileName == null ? null : MediaTypeFactory.getMediaType(fileName)
+                .map(MediaType::toString)
+                .orElse(null);
+
+        // ZIP containers (docx, xlsx, jar, ...) are told apart by extension only.
+        if (startsWith(header, 'P', 'K', 0x03, 0x04)) {
+            return byName != null ? byName : "application/zip";
+        }
+
+        if (byName != null) {
+            return byName;
+        }
+
+        if (isText(header)) {
+            return MediaType.TEXT_PLAIN_VALUE;
+        }
+
+        if (declaredContentType != null && !declaredContentType.isBlank()) {
+            return declaredContentType;
+        }
+
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private static String fromMagicBytes(byte[] header) {
+        if (startsWith(header, '%', 'P', 'D', 'F', '-')) return MediaType.APPLICATION_PDF_VALUE;
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return MediaType.IMAGE_PNG_VALUE;
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) return MediaType.IMAGE_JPEG_VALUE;
+        if (startsWith(header, 'G', 'I', 'F', '8')) return MediaType.IMAGE_GIF_VALUE;
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') return "image/webp";
+        if (startsWith(header, 0x1F, 0x8B)) return "application/gzip";
+        if (startsWith(header, 'I', 'D', '3')) return "audio/mpeg";
+        if (header.length >= 8 && header[4] == 'f' && header[5] == 't' && header[6] == 'y' && header[7] == 'p') return "video/mp4";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int... signature) {
+        if (header.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isText(byte[] header) {
+        if (header.length == 0) {
+            return false;
+        }
+        for (byte b : header) {
+            if (b == 0) {
+                return false;
+            }
+        }
+        try {
+            // The header may cut a multi-byte character in half, so only the complete prefix is checked.
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(header, 0, header.length - trailingPartialCharLength(header)));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static int trailingPartialCharLength(byte[] header) {
+        for (int i = 1; i <= Math.min(3, header.length); i++) {
+            int b = header[header.length - i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                int expected = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                return expected > i ? i : 0;
+            }
+        }
+        return 0;
+    }
+
+    public record UploadMetadata(long size, String checksumSha256, String checksumCrc32c, String contentType) {}
+
+    public static final class Inspection implements ContentStreamProvider {
+
+        private final MultipartFile file;
+        private final String contentType;
+        private volatile InspectingInputStream current;
+
+        private Inspection(MultipartFile file, String contentType) {
+            this.file = file;
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public RequestBody requestBody() {
+            return RequestBody.fromContentProvider(this, file.getSize(), contentType);
+        }
+
+        // The SDK asks for a fresh stream on every retry, so only the last one counts.
+        @Override
+        public InputStream newStream() {
+            try {
+                current = new InspectingInputStream(file.getInputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        }
+
+        public UploadMetadata complete() {
+            InspectingInputStream stream = current;
+            if (stream == null) {
+                throw new IllegalStateException("Upload stream was never read");
+            }
+            return new UploadMetadata(
+                    stream.count,
+                    Base64.getEncoder().encodeToString(stream.sha256.digest()),
+                    Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) stream.crc32c.getValue()).array()),
+                    contentType
+            );
+        }
+    }
+
+    private static final class InspectingInputStream extends FilterInputStream {
+
+        private final CRC32C crc32c = new CRC32C();
+        private final MessageDigest sha256;
+        private long count;
+
+        private InspectingInputStream(InputStream in) {
+            super(in);
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                crc32c.update(b);
+                sha256.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                crc32c.update(buffer, offset, read);
+                sha256.update(buffer, offset, read);
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[8192];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
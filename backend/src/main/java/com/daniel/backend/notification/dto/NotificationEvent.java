@@ -0,0 +1,18 @@
+package com.daniel.backend.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationEvent {
+    private NotificationType type;
+    private Long fileId;
+    private String displayName;
+    private String actorEmail;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,15 @@
+package com.daniel.backend.notification.dto;
+
+public enum NotificationType {
+    SHARE_CREATED,
+    SHARE_ACCEPTED,
+    SHARE_DECLINED,
+    SHARE_REVOKED,
+    FILE_UPLOADED,
+    FILE_RENAMED,
+    FILE_TRASHED,
+    FILE_RESTORED,
+    FILE_DELETED,
+    FOLDER_RENAMED,
+    FOLDER_DELETED
+}
@@ -0,0 +1,218 @@
+package com.daniel.backend.notification.service;
+
+import com.daniel.backend.notification.dto.NotificationEvent;
+import com.daniel.backend.notification.dto.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes share and file-change events to the user's open SSE connections. An idle
+ * connection is just a parked async request plus a small queue; a virtual thread only
+ * exists while a queue is being written out. A client that falls too far behind is
+ * disconnected and expected to reconnect and reload its listings.
+ */
+@Service
+public class NotificationService {
+
+    // Marker queued by the heartbeat; written as an SSE comment rather than an event.
+    private static final NotificationEvent HEARTBEAT = new NotificationEvent();
+
+    private final long timeoutMs;
+    private final int queueCapacity;
+    private final int maxConnectionsPerUser;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter dropped;
+
+    public NotificationService(
+            @Value("${notifications.sse.timeout-ms}") long timeoutMs,
+            @Value("${notifications.sse.queue-capacity}") int queueCapacity,
+            @Value("${notifications.sse.max-connections-per-user}") int maxConnectionsPerUser,
+            MeterRegistry meterRegistry
+    ) {
+        this.timeoutMs = timeoutMs;
+        this.queueCapacity = queueCapacity;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+
+        Gauge.builder("notifications.connections", connections, AtomicInteger::get)
+                .description("Open notification streams")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("notifications.dropped")
+                .description("Streams closed because the client could not keep up")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String email) {
+        String user = normalize(email);
+        Subscriber subscriber = new Subscriber(user, new SseEmitter(timeoutMs), new ArrayBlockingQueue<>(queueCapacity));
+
+        Set<Subscriber> userSubscribers = subscribers.compute(user, (key, existing) -> {
+            Set<Subscriber> set = existing != null ? existing : new CopyOnWriteArraySet<>();
+            set.add(subscriber);
+            return set;
+        });
+        connections.incrementAndGet();
+
+        // Oldest streams go first, e.g. tabs that were closed without the connection being torn down.
+        while (userSubscribers.size() > maxConnectionsPerUser) {
+            userSubscribers.stream().findFirst().ifPresent(this::close);
+        }
+
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(error -> remove(subscriber));
+
+        enqueue(subscriber, HEARTBEAT);
+        return subscriber.emitter;
+    }
+
+    public void publish(NotificationType type, Long fileId, String displayName, String actorEmail, Collection<String> recipients) {
+        NotificationEvent event = new NotificationEvent(type, fileId, displayName, actorEmail, LocalDateTime.now());
+        Set<String> users = recipients.stream()
+                .filter(email -> email != null)
+                .map(NotificationService::normalize)
+                .collect(Collectors.toSet());
+
+        // Listeners reload listings on an event, so it must not arrive before the change is visible.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(event, users);
+                }
+            });
+        } else {
+            deliver(event, users);
+        }
+    }
+
+    public int connectionCount(String email) {
+        Set<Subscriber> userSubscribers = subscribers.get(normalize(email));
+        return userSubscribers != null ? userSubscribers.size() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.sse.heartbeat-interval-ms}")
+    public void sendHeartbeats() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            // A stream with events in flight does not need a keep-alive.
+            if (subscriber.queue.isEmpty()) {
+                enqueue(subscriber, HEARTBEAT);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(this::close));
+        senders.shutdown();
+    }
+
+    private void deliver(NotificationEvent event, Set<String> users) {
+        for (String user : users) {
+            Set<Subscriber> userSubscribers = subscribers.get(user);
+            if (userSubscribers != null) {
+                userSubscribers.forEach(subscriber -> enqueue(subscriber, event));
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, NotificationEvent event) {
+        if (!subscriber.queue.offer(event)) {
+            dropped.increment();
+            close(subscriber);
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Only one drain runs per connection, so events are written in order and never concurrently.
+    private void drain(Subscriber subscriber) {
+        do {
+            NotificationEvent event;
+            while ((event = subscriber.queue.poll()) != null) {
+                try {
+                    if (event == HEARTBEAT) {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(Long.toString(eventIds.incrementAndGet()))
+                                .name(event.getType().name())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                } catch (Exception e) {
+                    close(subscriber);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            subscriber.queue.clear();
+            try {
+                subscriber.emitter.complete();
+            } catch (Exception e) {
+                System.err.println("Failed to close notification stream for " + subscriber.user + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        Set<Subscriber> userSubscribers = subscribers.get(subscriber.user);
+        if (userSubscribers == null || !userSubscribers.remove(subscriber)) {
+            return false;
+        }
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.user, (key, set) -> set.isEmpty() ? null : set);
+        return true;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Subscriber {
+
+        private final String user;
+        private final SseEmitter emitter;
+        private final BlockingQueue<NotificationEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(String user, SseEmitter emitter, BlockingQueue<NotificationEvent> queue) {
+            this.user = user;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.daniel.backend.publicsharing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Keeps the nested "file" shape the public links dialog reads, without serializing the entity.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PublicLinkDto {
+    private Long id;
+    private String token;
+    private LinkedFile file;
+    private LocalDateTime expiresAt;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LinkedFile {
+        private Long id;
+        private String displayName;
+        private long size;
+    }
+}
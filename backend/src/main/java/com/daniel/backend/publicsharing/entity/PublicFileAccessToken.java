@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 @Builder
 public class PublicFileAccessToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "public_file_access_token_seq")
+    @SequenceGenerator(name = "public_file_access_token_seq", sequenceName = "public_file_access_token_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -3,16 +3,19 @@ package com.daniel.backend.publicsharing.service;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.service.FileAccessService;
 import com.daniel.backend.file.service.StorageService;
+import com.daniel.backend.publicsharing.dto.PublicLinkDto;
 import com.daniel.backend.publicsharing.entity.PublicFileAccessToken;
 import com.daniel.backend.publicsharing.repo.PublicFileAccessTokenRepo;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.AccessDeniedException;
 import java.time.LocalDateTime;
@@ -36,10 +39,7 @@ public class PublicFileSharingService {
     private AuditLogService auditLogService;
 
     @Autowired
-    private S3Client s3Client;
-
-    @Value("${AWS_BUCKET_NAME}")
-    private String bucketName;
+    private FileAccessService fileAccessService;
 
     @Value("${file.preview.max-size}")
     private long maxPreviewSize;
@@ -48,9 +48,7 @@ public class PublicFileSharingService {
         Files file = fileRepo.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (!file.getOwner().getEmail().equalsIgnoreCase(ownerEmail.trim())) {
-            throw new AccessDeniedException("Only the owner can generate public link");
-        }
+        fileAccessService.requireWrite(ownerEmail, file.getId(), "Only the owner can generate public link");
 
         String token = UUID.randomUUID().toString();
         LocalDateTime expiry = LocalDateTime.now().plusHours(24);
@@ -105,8 +103,8 @@ public class PublicFileSharingService {
         }
 
         Files file = accessToken.getFile();
-        byte[] fileContent = storageService.downloadFile(file.getS3Key());
-        MediaType mediaType = getFileMediaType(file.getS3Key());
+        byte[] fileContent = storageService.downloadFile(file);
+        MediaType mediaType = getFileMediaType(file);
 
         auditLogService.log(
                 "PUBLIC_FILE_ACCESS",
@@ -119,16 +117,28 @@ public class PublicFileSharingService {
     }
 
 
-    public List<PublicFileAccessToken> getActiveLinksByOwner(String ownerEmail) {
-        return publicTokenRepo.findAllByFileOwnerEmailAndActiveTrue(ownerEmail);
+    // Mapped while the session is open; the entities themselves can't be serialized once it closes.
+    @Transactional(readOnly = true)
+    public List<PublicLinkDto> getActiveLinksByOwner(String ownerEmail) {
+        return publicTokenRepo.findAllByFileOwnerEmailAndActiveTrue(ownerEmail)
+                .stream()
+                .map(accessToken -> new PublicLinkDto(
+                        accessToken.getId(),
+                        accessToken.getToken(),
+                        new PublicLinkDto.LinkedFile(
+                                accessToken.getFile().getId(),
+                                accessToken.getFile().getDisplayName(),
+                                accessToken.getFile().getSize()
+                        ),
+                        accessToken.getExpiresAt()
+                ))
+                .toList();
     }
 
     public void revokeToken(String token, String requesterEmail) throws AccessDeniedException {
         PublicFileAccessToken accessToken = validateAndGetToken(token);
 
-        if (!accessToken.getFile().getOwner().getEmail().equalsIgnoreCase(requesterEmail.trim())) {
-            throw new AccessDeniedException("Only the owner can revoke this link.");
-        }
+        fileAccessService.requireWrite(requesterEmail, accessToken.getFile().getId(), "Only the owner can revoke this link.");
 
         auditLogService.log(
                 "PUBLIC_LINK_REVOCATION",
@@ -154,21 +164,17 @@ public class PublicFileSharingService {
         return access;
     }
 
-    private MediaType getFileMediaType(String s3Key) {
-        try {
-            String contentType = s3Client.headObject(HeadObjectRequest.builder()
-                            .bucket(bucketName)
-                            .key(s3Key)
-                            .build())
-                    .contentType();
-
-            if (contentType != null && !contentType.isBlank()) {
+    private MediaType getFileMediaType(Files file) {
+        String contentType = file.getContentType();
+        if (contentType != null && !contentType.isBlank()) {
+            try {
                 return MediaType.parseMediaType(contentType);
+            } catch (InvalidMediaTypeException e) {
+                System.err.println("Invalid content type stored for file: " + file.getS3Key() + " - " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.err.println("Error retrieving content type for file: " + s3Key + " - " + e.getMessage());
         }
-        return MediaType.APPLICATION_OCTET_STREAM;
+        return MediaTypeFactory.getMediaType(file.getDisplayName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
     }
 
     public record PublicFileResponse(byte[] content, String filename, MediaType mediaType) {}
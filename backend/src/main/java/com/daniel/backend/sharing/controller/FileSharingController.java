@@ -1,5 +1,9 @@
 package com.daniel.backend.sharing.controller;
 
+import com.daniel.backend.sharing.dto.BulkShareRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseResultDto;
+import com.daniel.backend.sharing.dto.BulkShareResultDto;
 import com.daniel.backend.sharing.dto.MessageUpdateRequestDto;
 import com.daniel.backend.sharing.dto.ShareFileRequestDto;
 import com.daniel.backend.sharing.dto.SharedFileDto;
@@ -29,6 +33,17 @@ public class FileSharingController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<?> shareFiles(@RequestBody BulkShareRequestDto dto, HttpServletRequest request) {
+        try {
+            String currentUserEmail = request.getUserPrincipal().getName();
+            List<BulkShareResultDto> results = fileSharingService.shareFiles(dto, currentUserEmail);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Bulk sharing failed: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/received")
     public ResponseEntity<?> getFilesSharedWithUser(HttpServletRequest request) {
         try {
@@ -116,6 +131,28 @@ public class FileSharingController {
         }
     }
 
+    @PostMapping("/accept/bulk")
+    public ResponseEntity<?> acceptSharedFiles(@RequestBody BulkShareResponseRequestDto dto, HttpServletRequest request) {
+        try {
+            String currentUserEmail = request.getUserPrincipal().getName();
+            List<BulkShareResponseResultDto> results = fileSharingService.acceptShares(dto, currentUserEmail);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to accept files: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/decline/bulk")
+    public ResponseEntity<?> declineSharedFiles(@RequestBody BulkShareResponseRequestDto dto, HttpServletRequest request) {
+        try {
+            String currentUserEmail = request.getUserPrincipal().getName();
+            List<BulkShareResponseResultDto> results = fileSharingService.declineShares(dto, currentUserEmail);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to decline files: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/decline/{permissionId}")
     public ResponseEntity<?> declineSharedFile(@PathVariable Long permissionId, HttpServletRequest request) {
         try {
@@ -0,0 +1,12 @@
+package com.daniel.backend.sharing.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkShareRequestDto {
+    private List<Long> fileIds;
+    private List<String> targetUserEmails;
+    private String message;
+}
@@ -0,0 +1,10 @@
+package com.daniel.backend.sharing.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkShareResponseRequestDto {
+    private List<Long> permissionIds;
+}
@@ -0,0 +1,14 @@
+package com.daniel.backend.sharing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkShareResponseResultDto {
+    private Long permissionId;
+    private boolean success;
+    private String detail;
+}
@@ -0,0 +1,16 @@
+package com.daniel.backend.sharing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkShareResultDto {
+    private Long fileId;
+    private String targetUserEmail;
+    private Long permissionId;
+    private boolean success;
+    private String detail;
+}
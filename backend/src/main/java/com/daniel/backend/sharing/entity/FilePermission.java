@@ -19,10 +19,13 @@ import java.time.LocalDateTime;
 @Builder
 @Table(name = "file_permission", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"file_id", "shared_with_user_id"})
+}, indexes = {
+        @Index(name = "idx_file_permission_recipient_status", columnList = "shared_with_user_id, status")
 })
 public class FilePermission {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_permission_seq")
+    @SequenceGenerator(name = "file_permission_seq", sequenceName = "file_permission_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
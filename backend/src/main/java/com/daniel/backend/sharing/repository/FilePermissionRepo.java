@@ -2,10 +2,16 @@ package com.daniel.backend.sharing.repository;
 
 import com.daniel.backend.auth.entity.Users;
 import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.sharing.dto.ShareStatus;
+import com.daniel.backend.sharing.dto.SharedFileDto;
 import com.daniel.backend.sharing.entity.FilePermission;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,11 +19,42 @@ import java.util.Optional;
 @Repository
 public interface FilePermissionRepo extends JpaRepository<FilePermission, Long> {
 
-    List<FilePermission> findBySharedWithEmail(String email);
+    @Query("SELECT new com.daniel.backend.sharing.dto.SharedFileDto(" +
+            "p.id, f.id, f.displayName, f.owner.email, f.s3Key, p.message, p.sharedAt, p.status, p.statusChangedAt) " +
+            "FROM FilePermission p JOIN p.file f " +
+            "WHERE p.sharedWith.email = :email AND p.status IN :statuses ORDER BY p.id")
+    List<SharedFileDto> findSharedFilesByRecipient(
+            @Param("email") String email,
+            @Param("statuses") Collection<ShareStatus> statuses
+    );
 
-    List<FilePermission> findByFileId(Long fileId);
+    @Query("SELECT new com.daniel.backend.sharing.dto.SharedFileDto(" +
+            "p.id, f.id, f.displayName, f.owner.email, f.s3Key, p.message, p.sharedAt, p.status, p.statusChangedAt) " +
+            "FROM FilePermission p JOIN p.file f " +
+            "WHERE f.owner.email = :email ORDER BY p.id")
+    List<SharedFileDto> findSharedFilesByOwner(@Param("email") String email);
+
+    @Override
+    @EntityGraph(attributePaths = {"file", "file.owner"})
+    Optional<FilePermission> findById(Long id);
+
+    @Query("SELECT u.email FROM FilePermission p JOIN p.sharedWith u WHERE p.file.id = :fileId ORDER BY p.id")
+    List<String> findRecipientEmailsByFileId(@Param("fileId") Long fileId);
 
     List<FilePermission> findAllByFileIdAndSharedWithEmail(Long fileId, String email);
 
+    boolean existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus(Long fileId, String email, ShareStatus status);
+
     Optional<FilePermission> findByFileAndSharedWith(Files file, Users receiver);
+
+    @Query("SELECT p FROM FilePermission p JOIN FETCH p.sharedWith u " +
+            "WHERE p.file.id IN :fileIds AND u.email IN :emails")
+    List<FilePermission> findAllByFileIdsAndRecipientEmails(
+            @Param("fileIds") Collection<Long> fileIds,
+            @Param("emails") Collection<String> emails
+    );
+
+    @Query("SELECT p FROM FilePermission p JOIN FETCH p.file f JOIN FETCH f.owner JOIN FETCH p.sharedWith " +
+            "WHERE p.id IN :ids")
+    List<FilePermission> findAllWithFileByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -1,10 +1,18 @@
 package com.daniel.backend.sharing.service;
 
+import com.daniel.backend.audit.entity.AuditLog;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.auth.entity.Users;
 import com.daniel.backend.auth.repository.UserRepo;
 import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.service.FileAccessService;
+import com.daniel.backend.notification.dto.NotificationType;
+import com.daniel.backend.notification.service.NotificationService;
+import com.daniel.backend.sharing.dto.BulkShareRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseResultDto;
+import com.daniel.backend.sharing.dto.BulkShareResultDto;
 import com.daniel.backend.sharing.dto.ShareFileRequestDto;
 import com.daniel.backend.sharing.dto.ShareStatus;
 import com.daniel.backend.sharing.dto.SharedFileDto;
@@ -12,13 +20,21 @@ import com.daniel.backend.sharing.entity.FilePermission;
 import com.daniel.backend.sharing.repository.FilePermissionRepo;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.AccessDeniedException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class FileSharingService {
@@ -35,11 +51,23 @@ public class FileSharingService {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private FileAccessService fileAccessService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Value("${sharing.bulk.max-items}")
+    private int maxBulkItems;
 
+
+    @Transactional
     public void shareFile(ShareFileRequestDto dto, String senderEmail) throws AccessDeniedException {
         Files file = fileRepo.findById(dto.getFileId())
                 .orElseThrow(() -> new AccessDeniedException("File not found"));
 
+        fileAccessService.requireWrite(senderEmail, file.getId(), "Only the owner can share this file");
+
         Users sender = userRepo.findByEmail(senderEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
@@ -69,6 +97,8 @@ public class FileSharingService {
                 existing.setStatusChangedAt(LocalDateTime.now());
 
                 filePermissionRepo.save(existing);
+                fileAccessService.invalidate(recipient.getEmail(), file.getId());
+                notifyParties(NotificationType.SHARE_CREATED, file, sender.getEmail(), recipient.getEmail());
 
                 auditLogService.log(
                         "RESHARE_FILE",
@@ -91,6 +121,7 @@ public class FileSharingService {
                 .build();
 
         filePermissionRepo.save(permission);
+        notifyParties(NotificationType.SHARE_CREATED, file, sender.getEmail(), recipient.getEmail());
 
         auditLogService.log(
                 "SHARE_FILE",
@@ -100,32 +131,116 @@ public class FileSharingService {
         );
     }
 
-    public List<SharedFileDto> getSharesSentByUser(String senderEmail) {
-        List<Files> senderFiles = fileRepo.findAll().stream()
-                .filter(file -> file.getOwner().getEmail().equalsIgnoreCase(senderEmail))
-                .toList();
+    @Transactional
+    public List<BulkShareResultDto> shareFiles(BulkShareRequestDto dto, String senderEmail) {
+        Set<Long> fileIds = new LinkedHashSet<>(dto.getFileIds() != null ? dto.getFileIds() : List.of());
+        Set<String> recipientEmails = new LinkedHashSet<>();
+        if (dto.getTargetUserEmails() != null) {
+            dto.getTargetUserEmails().stream()
+                    .filter(email -> email != null && !email.isBlank())
+                    .forEach(email -> recipientEmails.add(email.trim()));
+        }
+
+        if (fileIds.isEmpty() || recipientEmails.isEmpty()) {
+            throw new IllegalArgumentException("At least one file and one recipient are required.");
+        }
+        if ((long) fileIds.size() * recipientEmails.size() > maxBulkItems) {
+            throw new IllegalArgumentException("A bulk share may contain at most " + maxBulkItems + " file/recipient pairs.");
+        }
 
-        List<FilePermission> permissions = senderFiles.stream()
-                .flatMap(file -> filePermissionRepo.findByFileId(file.getId()).stream())
-                .toList();
+        Map<Long, Files> ownedFiles = new HashMap<>();
+        fileRepo.findAllByIdInAndOwnerEmail(fileIds, senderEmail).forEach(file -> ownedFiles.put(file.getId(), file));
 
-        return permissions.stream().map(permission -> {
-            Files file = permission.getFile();
-            return SharedFileDto.builder()
-                    .permissionId(permission.getId())
-                    .fileId(file.getId())
-                    .displayName(file.getDisplayName())
-                    .sharedBy(file.getOwner().getEmail())
-                    .s3Key(file.getS3Key())
-                    .message(permission.getMessage())
-                    .sharedAt(permission.getSharedAt())
-                    .shareStatus(permission.getStatus())
-                    .shareStatusChangedAt(permission.getStatusChangedAt())
-                    .build();
-        }).toList();
+        Map<String, Users> recipients = new HashMap<>();
+        userRepo.findAllByEmailIn(recipientEmails).forEach(user -> recipients.put(user.getEmail(), user));
+
+        Map<String, FilePermission> existingPermissions = new HashMap<>();
+        if (!ownedFiles.isEmpty() && !recipients.isEmpty()) {
+            filePermissionRepo.findAllByFileIdsAndRecipientEmails(ownedFiles.keySet(), recipients.keySet())
+                    .forEach(permission -> existingPermissions.put(
+                            shareKey(permission.getFile().getId(), permission.getSharedWith().getEmail()), permission));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<FilePermission> toSave = new ArrayList<>();
+        List<AuditLog> auditEntries = new ArrayList<>();
+        List<BulkShareResultDto> results = new ArrayList<>();
+        Map<BulkShareResultDto, FilePermission> savedFor = new IdentityHashMap<>();
+
+        for (Long fileId : fileIds) {
+            Files file = ownedFiles.get(fileId);
+
+            for (String recipientEmail : recipientEmails) {
+                Users recipient = recipients.get(recipientEmail);
+                String error = file == null ? "File not found"
+                        : recipient == null ? "Recipient not found"
+                        : recipient.getEmail().equalsIgnoreCase(senderEmail) ? "You cannot share a file with yourself."
+                        : null;
+                if (error != null) {
+                    results.add(new BulkShareResultDto(fileId, recipientEmail, null, false, error));
+                    continue;
+                }
+
+                FilePermission permission = existingPermissions.get(shareKey(fileId, recipient.getEmail()));
+                String action;
+                if (permission == null) {
+                    permission = FilePermission.builder()
+                            .file(file)
+                            .sharedWith(recipient)
+                            .status(ShareStatus.PENDING)
+                            .build();
+                    action = "SHARE_FILE";
+                } else if (permission.getStatus() == ShareStatus.PENDING) {
+                    results.add(new BulkShareResultDto(fileId, recipientEmail, permission.getId(), false,
+                            "A share request is already pending for this user."));
+                    continue;
+                } else {
+                    permission.setStatus(ShareStatus.PENDING);
+                    action = "RESHARE_FILE";
+                }
+
+                permission.setMessage(dto.getMessage());
+                permission.setSharedAt(now);
+                permission.setStatusChangedAt(now);
+                toSave.add(permission);
+
+                auditEntries.add(auditLogService.entry(
+                        action,
+                        senderEmail,
+                        file,
+                        ("SHARE_FILE".equals(action) ? "Shared" : "Re-shared") + " file with " + recipient.getEmail() + " (PENDING)"
+                ));
+
+                BulkShareResultDto result = new BulkShareResultDto(fileId, recipientEmail, null, true,
+                        "SHARE_FILE".equals(action) ? "Shared" : "Re-shared");
+                results.add(result);
+                savedFor.put(result, permission);
+            }
+        }
+
+        filePermissionRepo.saveAll(toSave);
+        auditLogService.logAll(auditEntries);
+        toSave.forEach(permission -> {
+            fileAccessService.invalidate(permission.getSharedWith().getEmail(), permission.getFile().getId());
+            notifyParties(NotificationType.SHARE_CREATED, permission.getFile(), senderEmail, permission.getSharedWith().getEmail());
+        });
+
+        // Ids of new permissions are only known once they have been saved.
+        savedFor.forEach((result, permission) -> result.setPermissionId(permission.getId()));
+        return results;
+    }
+
+    private static String shareKey(Long fileId, String email) {
+        return fileId + ":" + email;
+    }
+
+    @Transactional(readOnly = true)
+    public List<SharedFileDto> getSharesSentByUser(String senderEmail) {
+        return filePermissionRepo.findSharedFilesByOwner(senderEmail);
     }
 
 
+    @Transactional
     public void acceptShare(Long permissionId, String currentUserEmail) {
         FilePermission permission = filePermissionRepo.findById(permissionId)
                 .orElseThrow(() -> new EntityNotFoundException("Permission not found"));
@@ -137,6 +252,8 @@ public class FileSharingService {
         permission.setStatus(ShareStatus.ACCEPTED);
         permission.setStatusChangedAt(LocalDateTime.now());
         filePermissionRepo.save(permission);
+        fileAccessService.invalidate(currentUserEmail, permission.getFile().getId());
+        notifyParties(NotificationType.SHARE_ACCEPTED, permission.getFile(), currentUserEmail, permission.getFile().getOwner().getEmail());
 
         auditLogService.log(
                 "ACCEPT_SHARE",
@@ -153,6 +270,7 @@ public class FileSharingService {
         );
     }
 
+    @Transactional
     public void declineShare(Long permissionId, String currentUserEmail) {
         FilePermission permission = filePermissionRepo.findById(permissionId)
                 .orElseThrow(() -> new EntityNotFoundException("Permission not found"));
@@ -164,6 +282,8 @@ public class FileSharingService {
         permission.setStatus(ShareStatus.DECLINED);
         permission.setStatusChangedAt(LocalDateTime.now());
         filePermissionRepo.save(permission);
+        fileAccessService.invalidate(currentUserEmail, permission.getFile().getId());
+        notifyParties(NotificationType.SHARE_DECLINED, permission.getFile(), currentUserEmail, permission.getFile().getOwner().getEmail());
 
         auditLogService.log(
                 "DECLINE_SHARE",
@@ -181,50 +301,106 @@ public class FileSharingService {
     }
 
 
+    @Transactional
+    public List<BulkShareResponseResultDto> acceptShares(BulkShareResponseRequestDto dto, String currentUserEmail) {
+        return respondToShares(dto, currentUserEmail, ShareStatus.ACCEPTED);
+    }
+
+    @Transactional
+    public List<BulkShareResponseResultDto> declineShares(BulkShareResponseRequestDto dto, String currentUserEmail) {
+        return respondToShares(dto, currentUserEmail, ShareStatus.DECLINED);
+    }
+
+    private List<BulkShareResponseResultDto> respondToShares(
+            BulkShareResponseRequestDto dto,
+            String currentUserEmail,
+            ShareStatus newStatus
+    ) {
+        Set<Long> permissionIds = new LinkedHashSet<>(dto.getPermissionIds() != null ? dto.getPermissionIds() : List.of());
+        if (permissionIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one permission is required.");
+        }
+        if (permissionIds.size() > maxBulkItems) {
+            throw new IllegalArgumentException("A bulk request may contain at most " + maxBulkItems + " permissions.");
+        }
+
+        Map<Long, FilePermission> permissions = new HashMap<>();
+        filePermissionRepo.findAllWithFileByIdIn(permissionIds)
+                .forEach(permission -> permissions.put(permission.getId(), permission));
+
+        boolean accept = newStatus == ShareStatus.ACCEPTED;
+        LocalDateTime now = LocalDateTime.now();
+        List<FilePermission> toSave = new ArrayList<>();
+        List<AuditLog> auditEntries = new ArrayList<>();
+        List<BulkShareResponseResultDto> results = new ArrayList<>();
+
+        for (Long permissionId : permissionIds) {
+            FilePermission permission = permissions.get(permissionId);
+            if (permission == null) {
+                results.add(new BulkShareResponseResultDto(permissionId, false, "Permission not found"));
+                continue;
+            }
+            if (!permission.getSharedWith().getEmail().equals(currentUserEmail)) {
+                results.add(new BulkShareResponseResultDto(permissionId, false,
+                        "You are not authorized to " + (accept ? "accept" : "decline") + " this share"));
+                continue;
+            }
+
+            permission.setStatus(newStatus);
+            permission.setStatusChangedAt(now);
+            toSave.add(permission);
+
+            Files file = permission.getFile();
+            String ownerEmail = file.getOwner().getEmail();
+            auditEntries.add(auditLogService.entry(
+                    accept ? "ACCEPT_SHARE" : "DECLINE_SHARE",
+                    currentUserEmail,
+                    file,
+                    (accept ? "Accepted" : "Declined") + " shared file from " + ownerEmail
+            ));
+            auditEntries.add(auditLogService.entry(
+                    accept ? "SHARE_ACCEPTED" : "SHARE_DECLINED",
+                    ownerEmail,
+                    file,
+                    "Recipient " + currentUserEmail + (accept ? " accepted" : " declined") + " the shared file"
+            ));
+
+            results.add(new BulkShareResponseResultDto(permissionId, true, accept ? "Accepted" : "Declined"));
+        }
+
+        filePermissionRepo.saveAll(toSave);
+        auditLogService.logAll(auditEntries);
+        NotificationType notificationType = accept ? NotificationType.SHARE_ACCEPTED : NotificationType.SHARE_DECLINED;
+        toSave.forEach(permission -> {
+            fileAccessService.invalidate(currentUserEmail, permission.getFile().getId());
+            notifyParties(notificationType, permission.getFile(), currentUserEmail, permission.getFile().getOwner().getEmail());
+        });
+        return results;
+    }
+
+    @Transactional(readOnly = true)
     public List<SharedFileDto> getFilesSharedWithUser(String currentUserEmail) {
-        List<FilePermission> permissions = filePermissionRepo.findBySharedWithEmail(currentUserEmail);
-
-        return permissions.stream()
-                .filter(p -> p.getStatus() == ShareStatus.ACCEPTED || p.getStatus() == ShareStatus.PENDING)
-                .map(p -> {
-                    Files file = p.getFile();
-                    return SharedFileDto.builder()
-                            .permissionId(p.getId())
-                            .fileId(file.getId())
-                            .displayName(file.getDisplayName())
-                            .sharedBy(file.getOwner().getEmail())
-                            .s3Key(file.getS3Key())
-                            .message(p.getMessage())
-                            .shareStatus(p.getStatus())
-                            .shareStatusChangedAt(p.getStatusChangedAt())
-                            .sharedAt(p.getSharedAt())
-                            .build();
-                }).toList();
+        return filePermissionRepo.findSharedFilesByRecipient(
+                currentUserEmail, List.of(ShareStatus.ACCEPTED, ShareStatus.PENDING));
     }
 
+    @Transactional(readOnly = true)
     public List<String> getUsersFileIsSharedWith(Long fileId, String ownerEmail) throws AccessDeniedException {
-        Files file = fileRepo.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
-
-        if (!ownerEmail.equalsIgnoreCase(file.getOwner().getEmail())) {
-            throw new AccessDeniedException("You do not own this file");
+        if (!fileRepo.existsById(fileId)) {
+            throw new RuntimeException("File not found");
         }
 
+        fileAccessService.requireWrite(ownerEmail, fileId, "You do not own this file");
 
-        return filePermissionRepo.findByFileId(fileId)
-                .stream()
-                .map(fp -> fp.getSharedWith().getEmail())
-                .toList();
+        return filePermissionRepo.findRecipientEmailsByFileId(fileId);
     }
 
+    @Transactional
     public void revokeAccess(Long fileId, String targetEmail, String ownerEmail) throws AccessDeniedException {
         Files file = fileRepo.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (file.getOwner() == null || file.getOwner().getEmail() == null ||
-                !file.getOwner().getEmail().equalsIgnoreCase(ownerEmail.trim())) {
-            throw new AccessDeniedException("Only the owner can revoke access");
-        }
+        fileAccessService.requireWrite(ownerEmail, fileId, "Only the owner can revoke access");
 
         List<FilePermission> permissions = filePermissionRepo
                 .findAllByFileIdAndSharedWithEmail(fileId, targetEmail);
@@ -242,16 +418,21 @@ public class FileSharingService {
 
 
         filePermissionRepo.deleteAll(permissions);
+        permissions.forEach(permission -> fileAccessService.invalidate(permission.getSharedWith().getEmail(), fileId));
+        notifyParties(NotificationType.SHARE_REVOKED, file, ownerEmail, targetEmail);
+    }
+
+    private void notifyParties(NotificationType type, Files file, String actorEmail, String otherEmail) {
+        notificationService.publish(type, file.getId(), file.getDisplayName(), actorEmail, List.of(actorEmail, otherEmail));
     }
 
 
+    @Transactional
     public void updateMessage(Long fileId, Long targetUserId, String currentUserEmail, String newMessage) throws AccessDeniedException {
         Files file = fileRepo.findById(fileId)
                 .orElseThrow(() -> new EntityNotFoundException("File not found"));
 
-        if (!file.getOwner().getEmail().equals(currentUserEmail)) {
-            throw new AccessDeniedException("Only the file owner can edit the message");
-        }
+        fileAccessService.requireWrite(currentUserEmail, file.getId(), "Only the file owner can edit the message");
 
         Users receiver = userRepo.findById(targetUserId)
                 .orElseThrow(() -> new EntityNotFoundException("Target user not found"));
@@ -273,6 +454,7 @@ public class FileSharingService {
     }
 
 
+    @Transactional
     public void removeMessage(Long fileId, String targetEmail, String currentUserEmail) throws AccessDeniedException {
         Users targetUser = userRepo.findByEmail(targetEmail)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -284,7 +466,7 @@ public class FileSharingService {
                 .findByFileAndSharedWith(file, targetUser)
                 .orElseThrow(() -> new IllegalArgumentException("Permission not found"));
 
-        boolean isOwner = file.getOwner().getEmail().equals(currentUserEmail);
+        boolean isOwner = fileAccessService.canWrite(currentUserEmail, file.getId());
         boolean isReceiver = targetEmail.equals(currentUserEmail);
 
         if (!isOwner && !isReceiver) {
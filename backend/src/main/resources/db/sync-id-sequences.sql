@@ -0,0 +1,28 @@
+-- Tables created before the switch to pooled sequences got their ids from IDENTITY columns.
+-- Moves a sequence past the highest existing id, but only while it is still behind it: once a
+-- sequence has caught up this never calls setval, so it cannot race nextval on running instances.
+-- The advisory lock serializes instances starting together and is released when the block commits.
+-- Hibernate's pooled optimizer hands out (value - 49 .. value), hence the + 50.
+DO $$
+DECLARE
+    target record;
+    max_id bigint;
+    current_value bigint;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('sync-id-sequences'));
+
+    FOR target IN SELECT * FROM (VALUES
+            ('files', 'files_seq'),
+            ('audit_log', 'audit_log_seq'),
+            ('file_permission', 'file_permission_seq'),
+            ('public_file_access_token', 'public_file_access_token_seq'),
+            ('file_version', 'file_version_seq')
+    ) AS t(table_name, sequence_name) LOOP
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', target.table_name) INTO max_id;
+        EXECUTE format('SELECT last_value FROM %I', target.sequence_name) INTO current_value;
+        IF current_value < max_id THEN
+            PERFORM setval(target.sequence_name, max_id + 50);
+        END IF;
+    END LOOP;
+END
+$$;
@@ -0,0 +1,158 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.dto.AuditExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditExportServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private final List<SqlParameterSource> pageParams = new ArrayList<>();
+    private boolean inTransaction;
+
+    @Test
+    void csvQuotesOnlyValuesThatNeedIt() {
+        assertEquals("", AuditExportService.csv(null));
+        assertEquals("FILE_UPLOAD", AuditExportService.csv("FILE_UPLOAD"));
+        assertEquals("\"Renamed file from 'a,b' to 'c'\"", AuditExportService.csv("Renamed file from 'a,b' to 'c'"));
+        assertEquals("\"say \"\"hi\"\"\"", AuditExportService.csv("say \"hi\""));
+        assertEquals("\"two\nlines\"", AuditExportService.csv("two\nlines"));
+    }
+
+    @Test
+    void exportReadsKeysetPagesAndWritesOnlyOutsideTheTransaction() throws Exception {
+        for (long id = 5; id >= 1; id--) {
+            Long fileId = id == 3 ? null : 10L;
+            rows.add(new Object[]{
+                    id, Timestamp.valueOf(NOW.minusMinutes(5 - id)), "FILE_UPLOAD", "a@example.com", fileId, "a.txt", "Uploaded"});
+        }
+        AuditExportService service = new AuditExportService(jdbcTemplate(), transactionManager(), new ObjectMapper(), 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                assertFalse(inTransaction, "response written while a connection is held");
+                bytes.write(b);
+            }
+        };
+
+        service.export("a@example.com", null, null, null, AuditExportFormat.CSV, out);
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(6, lines.length);
+        assertEquals("id,timestamp,action,performedBy,fileId,fileName,description", lines[0]);
+        assertEquals("5," + NOW + ",FILE_UPLOAD,a@example.com,10,a.txt,Uploaded", lines[1]);
+        assertEquals("3," + NOW.minusMinutes(2) + ",FILE_UPLOAD,a@example.com,,a.txt,Uploaded", lines[3]);
+
+        assertEquals(3, pageParams.size());
+        assertFalse(pageParams.get(0).hasValue("afterId"));
+        assertEquals(4L, pageParams.get(1).getValue("afterId"));
+        assertEquals(2L, pageParams.get(2).getValue("afterId"));
+    }
+
+    private NamedParameterJdbcTemplate jdbcTemplate() {
+        return new NamedParameterJdbcTemplate(new JdbcTemplate()) {
+            @Override
+            public <T> List<T> query(String sql, SqlParameterSource params, RowMapper<T> rowMapper) {
+                assertTrue(inTransaction);
+                pageParams.add(params);
+                int limit = (Integer) params.getValue("limit");
+                Long afterId = params.hasValue("afterId") ? (Long) params.getValue("afterId") : null;
+                return rows.stream()
+                        .filter(row -> afterId == null || (Long) row[0] < afterId)
+                        .limit(limit)
+                        .map(row -> mapRow(rowMapper, row))
+                        .toList();
+            }
+        };
+    }
+
+    private <T> T mapRow(RowMapper<T> rowMapper, Object[] row) {
+        try {
+            return rowMapper.mapRow(new FakeResultSet(row).proxy(), 0);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                assertTrue(definition.isReadOnly());
+                inTransaction = true;
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                inTransaction = false;
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                inTransaction = false;
+            }
+        };
+    }
+
+    private static final class FakeResultSet {
+
+        private static final List<String> COLUMNS =
+                List.of("id", "timestamp", "action", "performed_by", "file_id", "file_name", "description");
+
+        private final Object[] row;
+        private boolean lastWasNull;
+
+        private FakeResultSet(Object[] row) {
+            this.row = row;
+        }
+
+        private ResultSet proxy() {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getLong" -> {
+                            Object value = value((String) args[0]);
+                            yield value == null ? 0L : ((Number) value).longValue();
+                        }
+                        case "getString", "getTimestamp" -> value((String) args[0]);
+                        case "wasNull" -> lastWasNull;
+                        default -> throw new UnsupportedOperationException("Unexpected method call: " + method.getName());
+                    }
+            );
+        }
+
+        private Object value(String column) {
+            Object value = row[COLUMNS.indexOf(column)];
+            lastWasNull = value == null;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.daniel.backend.audit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuditLogServiceTest {
+
+    @Test
+    void cursorRoundTripsTimestampAndId() {
+        AuditLogService.Cursor cursor = new AuditLogService.Cursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_793_000), 42L);
+
+        assertEquals(cursor, AuditLogService.Cursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AuditLogService.Cursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> AuditLogService.Cursor.decode("!!!"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.entity.AuditLog;
+import com.daniel.backend.audit.repository.AuditLogRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuditLogWriterTest {
+
+    private final List<AuditLog> saved = Collections.synchronizedList(new ArrayList<>());
+    private final List<AuditLog> rolledUp = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> propagations = Collections.synchronizedList(new ArrayList<>());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void queuedEntriesAreWrittenByShutdownAtTheLatest() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(repo(), rollupService(), transactionManager(), meterRegistry, 100, 2, 10);
+        writer.start();
+
+        writer.submit(List.of(entry("a@example.com"), entry("b@example.com"), entry("a@example.com")));
+        writer.flushOnShutdown();
+
+        assertEquals(3, saved.size());
+        assertEquals(3, rolledUp.size());
+        assertEquals(0.0, meterRegistry.get("audit.queue.overflow").counter().count());
+    }
+
+    @Test
+    void entriesSubmittedAfterShutdownAreWrittenInline() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(repo(), rollupService(), transactionManager(), meterRegistry, 100, 10, 10);
+        writer.start();
+        writer.flushOnShutdown();
+
+        writer.submit(List.of(entry("a@example.com")));
+
+        assertEquals(1, saved.size());
+    }
+
+    @Test
+    void overflowInAfterCommitIsWrittenInItsOwnTransaction() {
+        AuditLogWriter writer = new AuditLogWriter(repo(), rollupService(), transactionManager(), meterRegistry, 1, 10, 10);
+        // Running without the writer thread, so the single queue slot stays taken.
+        ReflectionTestUtils.setField(writer, "running", true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.submit(List.of(entry("a@example.com"), entry("b@example.com"), entry("c@example.com")));
+            assertEquals(0, saved.size());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(2, saved.size());
+        assertEquals(2.0, meterRegistry.get("audit.queue.overflow").counter().count());
+        assertEquals(List.of(TransactionDefinition.PROPAGATION_REQUIRES_NEW), propagations);
+    }
+
+    private AuditLog entry(String performedBy) {
+        return AuditLog.builder()
+                .action("FILE_UPLOAD")
+                .performedBy(performedBy)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private AuditLogRepo repo() {
+        return (AuditLogRepo) Proxy.newProxyInstance(
+                AuditLogRepo.class.getClassLoader(),
+                new Class<?>[]{AuditLogRepo.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "saveAll" -> {
+                        ((Iterable<AuditLog>) args[0]).forEach(saved::add);
+                        yield args[0];
+                    }
+                    default -> throw new UnsupportedOperationException("Unexpected method call: " + method.getName());
+                }
+        );
+    }
+
+    private AuditRollupService rollupService() {
+        return new AuditRollupService(null, null, transactionManager()) {
+            @Override
+            public void record(List<AuditLog> batch) {
+                rolledUp.addAll(batch);
+            }
+        };
+    }
+
+    private PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                propagations.add(definition.getPropagationBehavior());
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
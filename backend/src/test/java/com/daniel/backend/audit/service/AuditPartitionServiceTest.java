@@ -0,0 +1,26 @@
+package com.daniel.backend.audit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditPartitionServiceTest {
+
+    @Test
+    void partitionNamesRoundTripToTheirMonth() {
+        String name = AuditPartitionService.partitionName(YearMonth.of(2025, 3));
+
+        assertEquals("audit_log_y2025m03", name);
+        assertEquals(YearMonth.of(2025, 3), AuditPartitionService.monthOf(name));
+    }
+
+    @Test
+    void monthOfIgnoresTablesThatAreNotMonthlyPartitions() {
+        assertNull(AuditPartitionService.monthOf("audit_log_unpartitioned"));
+        assertNull(AuditPartitionService.monthOf("audit_log_archive"));
+        assertNull(AuditPartitionService.monthOf("files"));
+    }
+}
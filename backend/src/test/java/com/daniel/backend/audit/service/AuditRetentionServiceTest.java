@@ -0,0 +1,147 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.config.AuditRetentionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditRetentionServiceTest {
+
+    private final List<String> users = List.of("a@example.com", "b@example.com", "c@example.com");
+    private final List<String> deleteSql = new ArrayList<>();
+    private final List<SqlParameterSource> deleteParams = new ArrayList<>();
+    private final List<String> walkedAfter = new ArrayList<>();
+    private final AuditRetentionProperties properties = new AuditRetentionProperties();
+    private int failuresLeft;
+
+    private AuditRetentionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setMaxPerUser(100);
+        properties.setMaxPerUserByAction(Map.of("PUBLIC_FILE_ACCESS", 500));
+        properties.setUserBatchSize(2);
+
+        service = new AuditRetentionService();
+        setField(service, "jdbcTemplate", jdbcTemplate());
+        setField(service, "namedParameterJdbcTemplate", namedParameterJdbcTemplate());
+        setField(service, "properties", properties);
+    }
+
+    @Test
+    void trimUsersRanksActionsWithTheirOwnLimitSeparatelyFromTheRest() {
+        service.trimUsers(List.of("a@example.com"));
+
+        assertEquals(2, deleteSql.size());
+
+        assertTrue(deleteSql.get(0).contains("AND action = :action"));
+        assertTrue(deleteSql.get(0).contains("ROW_NUMBER() OVER (PARTITION BY performed_by"));
+        assertEquals("PUBLIC_FILE_ACCESS", deleteParams.get(0).getValue("action"));
+        assertEquals(500, deleteParams.get(0).getValue("keep"));
+
+        assertTrue(deleteSql.get(1).contains("AND (action IS NULL OR action NOT IN (:actions))"));
+        assertEquals(Set.of("PUBLIC_FILE_ACCESS"), Set.copyOf((Collection<?>) deleteParams.get(1).getValue("actions")));
+        assertEquals(100, deleteParams.get(1).getValue("keep"));
+        assertEquals(List.of("a@example.com"), deleteParams.get(1).getValue("users"));
+    }
+
+    @Test
+    void trimUsersWithoutActionLimitsRanksEverythingTogether() {
+        properties.setMaxPerUserByAction(Map.of());
+
+        service.trimUsers(List.of("a@example.com"));
+
+        assertEquals(1, deleteSql.size());
+        assertFalse(deleteSql.get(0).contains("action"));
+        assertEquals(100, deleteParams.get(0).getValue("keep"));
+    }
+
+    @Test
+    void trimWalksUsersInKeysetBatches() {
+        service.trim();
+
+        assertEquals(List.of("", "b@example.com", "c@example.com"), walkedAfter);
+        assertEquals(List.of(List.of("a@example.com", "b@example.com"), List.of("c@example.com")), trimmedBatches());
+    }
+
+    @Test
+    void trimRetriesAFailedBatchBeforeMovingOn() {
+        failuresLeft = 1;
+
+        service.trim();
+
+        assertEquals(List.of(List.of("a@example.com", "b@example.com"), List.of("c@example.com")), trimmedBatches());
+    }
+
+    @Test
+    void trimStopsInsteadOfSkippingABatchThatKeepsFailing() {
+        failuresLeft = Integer.MAX_VALUE;
+
+        service.trim();
+
+        assertEquals(List.of(""), walkedAfter);
+        assertTrue(trimmedBatches().isEmpty());
+    }
+
+    // Users of the default-limit DELETE that succeeded, one entry per batch.
+    private List<Object> trimmedBatches() {
+        List<Object> batches = new ArrayList<>();
+        for (int i = 0; i < deleteSql.size(); i++) {
+            if (deleteSql.get(i).contains("NOT IN (:actions)")) {
+                batches.add(deleteParams.get(i).getValue("users"));
+            }
+        }
+        return batches;
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                String after = (String) args[0];
+                int limit = (Integer) args[1];
+                walkedAfter.add(after);
+                return (List<T>) users.stream()
+                        .filter(user -> user.compareTo(after) > 0)
+                        .limit(limit)
+                        .toList();
+            }
+        };
+    }
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
+        return new NamedParameterJdbcTemplate(new JdbcTemplate()) {
+            @Override
+            public int update(String sql, SqlParameterSource params) {
+                if (failuresLeft > 0) {
+                    failuresLeft--;
+                    throw new QueryTimeoutException("statement timeout");
+                }
+                deleteSql.add(sql);
+                deleteParams.add(params);
+                return 0;
+            }
+        };
+    }
+
+    private void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
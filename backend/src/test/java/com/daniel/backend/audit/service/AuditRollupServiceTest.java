@@ -0,0 +1,46 @@
+package com.daniel.backend.audit.service;
+
+import com.daniel.backend.audit.entity.AuditLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuditRollupServiceTest {
+
+    @Test
+    void batchIsCountedPerUserActionAndDay() {
+        LocalDateTime morning = LocalDateTime.of(2025, 3, 14, 9, 0);
+        List<AuditLog> batch = List.of(
+                entry("b@example.com", "FILE_UPLOAD", morning),
+                entry("a@example.com", "FILE_UPLOAD", morning),
+                entry("a@example.com", "FILE_UPLOAD", morning.plusHours(10)),
+                entry("a@example.com", "FILE_UPLOAD", morning.plusDays(1)),
+                entry("a@example.com", "FILE_DOWNLOAD", morning),
+                entry(null, "FILE_UPLOAD", morning)
+        );
+
+        Map<AuditRollupService.DayKey, Long> counts = AuditRollupService.aggregate(batch);
+
+        LocalDate day = morning.toLocalDate();
+        assertEquals(List.of(
+                new AuditRollupService.DayKey("a@example.com", "FILE_DOWNLOAD", day),
+                new AuditRollupService.DayKey("a@example.com", "FILE_UPLOAD", day),
+                new AuditRollupService.DayKey("a@example.com", "FILE_UPLOAD", day.plusDays(1)),
+                new AuditRollupService.DayKey("b@example.com", "FILE_UPLOAD", day)
+        ), List.copyOf(counts.keySet()));
+        assertEquals(2L, counts.get(new AuditRollupService.DayKey("a@example.com", "FILE_UPLOAD", day)));
+    }
+
+    private AuditLog entry(String performedBy, String action, LocalDateTime timestamp) {
+        return AuditLog.builder()
+                .action(action)
+                .performedBy(performedBy)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.daniel.backend.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainValidationServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Test
+    void answersAreCachedPerDomain() {
+        DomainValidationService service = service(CompletableFuture.completedFuture(
+                new DomainValidationService.MxAnswer(false, Duration.ofMinutes(5))));
+
+        assertFalse(service.isDomainValid("a@no-mail.example"));
+        assertFalse(service.isDomainValid("b@NO-MAIL.example"));
+
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void preseededDomainsNeedNoLookup() {
+        DomainValidationService service = service(new CompletableFuture<>());
+
+        assertTrue(service.isDomainValid("someone@Gmail.com"));
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void lookupMissingTheDeadlineCountsAsValid() {
+        CompletableFuture<DomainValidationService.MxAnswer> pending = new CompletableFuture<>();
+        DomainValidationService service = service(pending);
+
+        assertTrue(service.isDomainValid("a@slow.example"));
+        assertTrue(service.isDomainValid("b@slow.example"));
+        assertEquals(1, lookups.get());
+        assertEquals(2.0, meterRegistry.get("auth.domain_validation.fail_open").counter().count());
+
+        pending.complete(new DomainValidationService.MxAnswer(false, Duration.ofMinutes(5)));
+        assertFalse(service.isDomainValid("c@slow.example"));
+    }
+
+    private DomainValidationService service(CompletableFuture<DomainValidationService.MxAnswer> answer) {
+        return new DomainValidationService(meterRegistry, 100, 300, 60, 86_400, 50, 1_000, List.of("gmail.com")) {
+            @Override
+            CompletableFuture<DomainValidationService.MxAnswer> lookup(String domain) {
+                lookups.incrementAndGet();
+                return answer;
+            }
+        };
+    }
+}
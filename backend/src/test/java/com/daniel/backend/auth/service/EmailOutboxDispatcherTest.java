@@ -0,0 +1,24 @@
+package com.daniel.backend.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailOutboxDispatcherTest {
+
+    private final EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(
+            null, null, null, null, new SimpleMeterRegistry(),
+            "noreply@example.com", 1, 50, 8, 5_000, 60_000, 300, 7);
+
+    @Test
+    void backoffDoublesPerAttemptUpToTheCap() {
+        assertEquals(Duration.ofSeconds(5), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(40), dispatcher.backoff(4));
+        assertEquals(Duration.ofSeconds(60), dispatcher.backoff(5));
+        assertEquals(Duration.ofSeconds(60), dispatcher.backoff(100));
+    }
+}
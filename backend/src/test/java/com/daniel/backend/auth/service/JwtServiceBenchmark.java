@@ -0,0 +1,83 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.entity.Users;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of authenticating one request's bearer token. {@code previousFilterPath} repeats
+ * what JwtFilter used to do (decode the key and build a parser for each of three parses);
+ * {@code cachedFilterPath} is the current single parse with the cached parser.
+ * Not run by the test suite; start {@link #main} from the IDE or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("benchmark-secret-benchmark-secret-0123456789".getBytes());
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", TimeUnit.MINUTES.toMillis(30));
+        ReflectionTestUtils.setField(jwtService, "refreshTokenExpiration", TimeUnit.DAYS.toMillis(7));
+        jwtService.init();
+        Users user = new Users();
+        user.setId(1L);
+        user.setEmail("user@example.com");
+        token = jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public boolean previousFilterPath() {
+        String email = previousParse(token).getSubject();
+        String validatedEmail = previousParse(token).getSubject();
+        Date expiration = previousParse(token).getExpiration();
+        return email.equals(validatedEmail) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean cachedFilterPath() {
+        Claims claims = jwtService.parseToken(token);
+        return claims.getSubject().equals("user@example.com") && !claims.getExpiration().before(new Date());
+    }
+
+    private Claims previousParse(String jwt) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(jwt).getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
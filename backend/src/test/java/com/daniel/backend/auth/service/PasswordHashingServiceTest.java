@@ -0,0 +1,78 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.exception.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void hashesOnThePoolAndDetectsWeakerCostFactors() {
+        PasswordHashingService service = new PasswordHashingService(new BCryptPasswordEncoder(5), meterRegistry, 1, 4, 5_000, 2);
+
+        String hash = service.encode("secret");
+
+        assertTrue(service.matches("secret", hash));
+        assertFalse(service.matches("other", hash));
+        assertFalse(service.needsRehash(hash));
+        assertTrue(service.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+        assertEquals(1, meterRegistry.get("auth.password.hash").tag("operation", "encode").timer().count());
+        service.shutdown();
+    }
+
+    @Test
+    void saturatedPoolIsRejectedImmediately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHashingService service = new PasswordHashingService(blockingEncoder(started, release), meterRegistry, 1, 1, 5_000, 7);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> service.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> service.encode("b"));
+        while (meterRegistry.get("auth.password.hash.queue").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        PasswordHashingOverloadedException e = assertThrows(PasswordHashingOverloadedException.class, () -> service.encode("c"));
+        assertEquals(7, e.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("auth.password.hash.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("b", queued.get(5, TimeUnit.SECONDS));
+        service.shutdown();
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+    }
+}
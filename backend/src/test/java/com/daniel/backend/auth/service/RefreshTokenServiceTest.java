@@ -0,0 +1,287 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.entity.RefreshToken;
+import com.daniel.backend.auth.entity.Users;
+import com.daniel.backend.auth.repository.RefreshTokenRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RefreshTokenServiceTest {
+
+    private static final String ROTATE_SQL = "UPDATE refresh_token SET revoked_at = ?, replaced_by = ?";
+
+    private final Map<String, RefreshToken> rows = new LinkedHashMap<>();
+    private final List<String> updates = new ArrayList<>();
+    private final Users user = user(1L);
+
+    private RefreshTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenService(repo(), jwtService(), jdbcTemplate(), transactionManager(), 60_000);
+        service.loadRevoked();
+    }
+
+    @Test
+    void rotateIssuesTheNextTokenOfTheFamilyAndRetiresThePresentedOne() {
+        String first = jti(service.issue(user));
+
+        String second = jti(service.rotate(first, user));
+
+        RefreshToken presented = rows.get(first);
+        assertNotNull(presented.getRevokedAt());
+        assertEquals(second, presented.getReplacedBy());
+        assertEquals(first, rows.get(second).getFamilyId());
+        assertNull(rows.get(second).getRevokedAt());
+    }
+
+    @Test
+    void replayingARotatedTokenRevokesTheWholeFamilyWithoutTouchingTheDatabaseRow() {
+        String first = jti(service.issue(user));
+        String second = jti(service.rotate(first, user));
+        updates.clear();
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.rotate(first, user));
+
+        assertEquals("Refresh token has already been used.", ex.getMessage());
+        assertTrue(updates.stream().noneMatch(sql -> sql.startsWith(ROTATE_SQL)));
+        assertNotNull(rows.get(second).getRevokedAt());
+        assertThrows(RuntimeException.class, () -> service.rotate(second, user));
+    }
+
+    @Test
+    void reuseMissedByTheInMemorySetIsCaughtByTheConditionalUpdate() {
+        String first = jti(service.issue(user));
+        String second = jti(service.rotate(first, user));
+        // Rotated by another instance whose revocation has not been synced here yet.
+        rows.get(second).setRevokedAt(LocalDateTime.now());
+        rows.put("third", RefreshToken.builder()
+                .jti("third")
+                .familyId(first)
+                .userId(1L)
+                .issuedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(1))
+                .build());
+        String sibling = jti(service.issue(user));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.rotate(second, user));
+
+        assertEquals("Refresh token has already been used.", ex.getMessage());
+        assertNotNull(rows.get("third").getRevokedAt());
+        assertNull(rows.get(sibling).getRevokedAt());
+    }
+
+    @Test
+    void unknownOrForeignTokensAreRejected() {
+        String token = jti(service.issue(user));
+
+        RuntimeException unknown = assertThrows(RuntimeException.class, () -> service.rotate("missing", user));
+        RuntimeException foreign = assertThrows(RuntimeException.class, () -> service.rotate(token, user(2L)));
+
+        assertEquals("Refresh token is invalid or expired.", unknown.getMessage());
+        assertEquals("Refresh token is invalid or expired.", foreign.getMessage());
+        assertNull(rows.get(token).getRevokedAt());
+    }
+
+    @Test
+    void revocationsFromTheDatabaseAreLoadedAtStartup() {
+        String token = jti(service.issue(user));
+        rows.get(token).setRevokedAt(LocalDateTime.now());
+
+        RefreshTokenService restarted = new RefreshTokenService(repo(), jwtService(), jdbcTemplate(), transactionManager(), 60_000);
+        restarted.loadRevoked();
+        updates.clear();
+
+        assertThrows(RuntimeException.class, () -> restarted.rotate(token, user));
+        assertTrue(updates.stream().noneMatch(sql -> sql.startsWith(ROTATE_SQL)));
+    }
+
+    @Test
+    void revokeAllForUserEndsEverySessionOfThatUserOnly() {
+        String first = jti(service.issue(user));
+        String second = jti(service.issue(user));
+        String other = jti(service.issue(user(2L)));
+
+        service.revokeAllForUser(1L);
+
+        assertNotNull(rows.get(first).getRevokedAt());
+        assertNotNull(rows.get(second).getRevokedAt());
+        assertNull(rows.get(other).getRevokedAt());
+        assertThrows(RuntimeException.class, () -> service.rotate(first, user));
+    }
+
+    private String jti(String token) {
+        return token.substring("refresh:".length());
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                if (sql.startsWith("SELECT family_id FROM refresh_token WHERE jti = ? AND user_id = ?")) {
+                    RefreshToken row = rows.get((String) args[0]);
+                    return row != null && row.getUserId().equals(args[1]) ? List.of((T) row.getFamilyId()) : List.of();
+                }
+                if (sql.startsWith("SELECT t.jti FROM refresh_token t JOIN refresh_token presented")) {
+                    return (List<T>) jtisOfFamily(familyOf((String) args[0]));
+                }
+                if (sql.startsWith("SELECT jti FROM refresh_token WHERE user_id = ? AND revoked_at IS NULL")) {
+                    return (List<T>) rows.values().stream()
+                            .filter(row -> row.getUserId().equals(args[0]) && row.getRevokedAt() == null)
+                            .map(RefreshToken::getJti)
+                            .toList();
+                }
+                throw new UnsupportedOperationException(sql);
+            }
+
+            @Override
+            public int update(String sql, Object... args) {
+                updates.add(sql);
+                if (sql.startsWith(ROTATE_SQL)) {
+                    RefreshToken row = rows.get((String) args[2]);
+                    if (row == null || row.getRevokedAt() != null) {
+                        return 0;
+                    }
+                    row.setRevokedAt(LocalDateTime.now());
+                    row.setReplacedBy((String) args[1]);
+                    return 1;
+                }
+                if (sql.startsWith("UPDATE refresh_token SET revoked_at = ? WHERE revoked_at IS NULL AND family_id")) {
+                    return revokeWhere(familyOf((String) args[1]), null);
+                }
+                if (sql.startsWith("UPDATE refresh_token SET revoked_at = ? WHERE user_id = ?")) {
+                    return revokeWhere(null, (Long) args[1]);
+                }
+                throw new UnsupportedOperationException(sql);
+            }
+
+            @Override
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                return requiredType.cast(revokedJtis().size());
+            }
+
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) {
+                for (String jti : revokedJtis()) {
+                    try {
+                        rch.processRow(resultSet(jti));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+    }
+
+    private String familyOf(String jti) {
+        RefreshToken row = rows.get(jti);
+        return row != null ? row.getFamilyId() : null;
+    }
+
+    private List<String> jtisOfFamily(String familyId) {
+        return rows.values().stream()
+                .filter(row -> row.getFamilyId().equals(familyId))
+                .map(RefreshToken::getJti)
+                .toList();
+    }
+
+    private int revokeWhere(String familyId, Long userId) {
+        int updated = 0;
+        for (RefreshToken row : rows.values()) {
+            boolean matches = familyId != null ? row.getFamilyId().equals(familyId) : row.getUserId().equals(userId);
+            if (matches && row.getRevokedAt() == null) {
+                row.setRevokedAt(LocalDateTime.now());
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private List<String> revokedJtis() {
+        return rows.values().stream()
+                .filter(row -> row.getRevokedAt() != null)
+                .map(RefreshToken::getJti)
+                .toList();
+    }
+
+    private ResultSet resultSet(String jti) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getString" -> jti;
+                    default -> throw new UnsupportedOperationException("Unexpected method call: " + method.getName());
+                }
+        );
+    }
+
+    private RefreshTokenRepo repo() {
+        return (RefreshTokenRepo) Proxy.newProxyInstance(
+                RefreshTokenRepo.class.getClassLoader(),
+                new Class<?>[]{RefreshTokenRepo.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        RefreshToken token = (RefreshToken) args[0];
+                        rows.put(token.getJti(), token);
+                        yield token;
+                    }
+                    default -> throw new UnsupportedOperationException("Unexpected method call: " + method.getName());
+                }
+        );
+    }
+
+    private JwtService jwtService() {
+        return new JwtService() {
+            @Override
+            public String generateRefreshToken(Users user, String jti) {
+                return "refresh:" + jti;
+            }
+        };
+    }
+
+    private PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    private Users user(Long id) {
+        Users user = new Users();
+        user.setId(id);
+        user.setEmail("user" + id + "@example.com");
+        return user;
+    }
+}
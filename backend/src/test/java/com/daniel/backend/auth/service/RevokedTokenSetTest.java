@@ -0,0 +1,60 @@
+package com.daniel.backend.auth.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevokedTokenSetTest {
+
+    @Test
+    void containsEveryAddedIdAcrossResizes() {
+        RevokedTokenSet set = new RevokedTokenSet();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String id = UUID.randomUUID().toString();
+            ids.add(id);
+            set.add(id);
+        }
+
+        ids.forEach(id -> assertTrue(set.contains(id), id));
+        assertFalse(set.contains(UUID.randomUUID().toString()));
+        assertEquals(5_000, set.size());
+    }
+
+    @Test
+    void duplicatesAndMalformedIdsAreIgnored() {
+        RevokedTokenSet set = new RevokedTokenSet();
+        String id = UUID.randomUUID().toString();
+
+        set.add(id);
+        set.add(id);
+        set.add("not-a-uuid");
+        set.add(null);
+
+        assertEquals(1, set.size());
+        assertTrue(set.contains(id.toUpperCase()));
+        assertFalse(set.contains("not-a-uuid"));
+        assertFalse(set.contains(null));
+    }
+
+    @Test
+    void replaceWithSwapsInTheRebuiltContents() {
+        RevokedTokenSet set = new RevokedTokenSet();
+        String stale = UUID.randomUUID().toString();
+        String current = UUID.randomUUID().toString();
+        set.add(stale);
+
+        RevokedTokenSet rebuilt = new RevokedTokenSet(1);
+        rebuilt.add(current);
+        set.replaceWith(rebuilt);
+
+        assertFalse(set.contains(stale));
+        assertTrue(set.contains(current));
+    }
+}
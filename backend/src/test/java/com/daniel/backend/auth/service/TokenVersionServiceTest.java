@@ -0,0 +1,82 @@
+package com.daniel.backend.auth.service;
+
+import com.daniel.backend.auth.repository.UserRepo;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenVersionServiceTest {
+
+    private final Map<Long, Long> storedVersions = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private Runnable duringLookup = () -> {};
+    private final TokenVersionService service = new TokenVersionService(repo(), 100, 60);
+
+    @Test
+    void repeatedChecksAreServedFromTheCache() {
+        storedVersions.put(1L, 0L);
+
+        assertTrue(service.isCurrent(1L, 0));
+        assertTrue(service.isCurrent(1L, 0));
+        assertFalse(service.isCurrent(1L, 1));
+
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void invalidationPicksUpABumpedVersion() {
+        storedVersions.put(1L, 0L);
+        assertTrue(service.isCurrent(1L, 0));
+
+        storedVersions.put(1L, 1L);
+        service.invalidate(1L);
+
+        assertFalse(service.isCurrent(1L, 0));
+        assertTrue(service.isCurrent(1L, 1));
+    }
+
+    @Test
+    void versionLoadedWhileTheUserIsInvalidatedIsNotCached() {
+        storedVersions.put(1L, 0L);
+        duringLookup = () -> {
+            duringLookup = () -> {};
+            storedVersions.put(1L, 1L);
+            service.invalidate(1L);
+        };
+
+        assertTrue(service.isCurrent(1L, 0));
+
+        assertFalse(service.isCurrent(1L, 0));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void tokensOfMissingUsersAreRejected() {
+        assertFalse(service.isCurrent(2L, 0));
+        assertFalse(service.isCurrent(null, 0));
+    }
+
+    private UserRepo repo() {
+        return (UserRepo) Proxy.newProxyInstance(
+                UserRepo.class.getClassLoader(),
+                new Class<?>[]{UserRepo.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findTokenVersionById" -> {
+                        lookups.incrementAndGet();
+                        Optional<Long> version = Optional.ofNullable(storedVersions.get((Long) args[0]));
+                        duringLookup.run();
+                        yield version;
+                    }
+                    default -> throw new UnsupportedOperationException("Unexpected method call: " + method.getName());
+                }
+        );
+    }
+}
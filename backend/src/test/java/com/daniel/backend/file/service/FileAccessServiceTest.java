@@ -0,0 +1,122 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.sharing.repository.FilePermissionRepo;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileAccessServiceTest {
+
+    private final Map<Long, String> owners = new HashMap<>();
+    private final Set<String> acceptedShares = new HashSet<>();
+    private final Map<Long, Integer> ownerLookups = new HashMap<>();
+    private Runnable duringLookup = () -> {};
+
+    private final FileAccessService service = new FileAccessService(fileRepo(), filePermissionRepo(), 100, 60);
+
+    @Test
+    void decisionsAreCachedPerUserAndFile() {
+        owners.put(10L, "owner@example.com");
+
+        assertEquals(FileAccessService.Access.WRITE, service.accessOf(" Owner@example.com ", 10L));
+        assertEquals(FileAccessService.Access.WRITE, service.accessOf("owner@example.com", 10L));
+        assertEquals(FileAccessService.Access.NONE, service.accessOf("reader@example.com", 10L));
+
+        assertEquals(2, ownerLookups.get(10L));
+    }
+
+    @Test
+    void invalidateFilesDropsEveryDecisionOnThoseFilesOnly() {
+        owners.put(10L, "owner@example.com");
+        owners.put(11L, "owner@example.com");
+        acceptedShares.add("10:reader@example.com");
+        assertTrue(service.canRead("reader@example.com", 10L));
+        assertTrue(service.canWrite("owner@example.com", 10L));
+        assertTrue(service.canWrite("owner@example.com", 11L));
+
+        acceptedShares.clear();
+        service.invalidateFiles(List.of(10L));
+
+        assertFalse(service.canRead("reader@example.com", 10L));
+        assertTrue(service.canWrite("owner@example.com", 10L));
+        assertTrue(service.canWrite("owner@example.com", 11L));
+        assertEquals(4, ownerLookups.get(10L));
+        assertEquals(1, ownerLookups.get(11L));
+    }
+
+    @Test
+    void decisionResolvedWhileTheFileIsInvalidatedIsNotReused() {
+        owners.put(10L, "owner@example.com");
+        acceptedShares.add("10:reader@example.com");
+        duringLookup = () -> {
+            duringLookup = () -> {};
+            acceptedShares.clear();
+            service.invalidate("reader@example.com", 10L);
+        };
+
+        assertTrue(service.canRead("reader@example.com", 10L));
+
+        assertFalse(service.canRead("reader@example.com", 10L));
+    }
+
+    private FileRepo fileRepo() {
+        return proxy(FileRepo.class, (method, args) -> switch (method) {
+            case "findOwnerEmailById" -> {
+                Long fileId = (Long) args[0];
+                ownerLookups.merge(fileId, 1, Integer::sum);
+                yield Optional.ofNullable(owners.get(fileId));
+            }
+            default -> unsupported(method);
+        });
+    }
+
+    private FilePermissionRepo filePermissionRepo() {
+        return proxy(FilePermissionRepo.class, (method, args) -> switch (method) {
+            case "existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus" -> {
+                boolean accepted = acceptedShares.contains(args[0] + ":" + args[1]);
+                duringLookup.run();
+                yield accepted;
+            }
+            default -> unsupported(method);
+        });
+    }
+
+    private Object unsupported(String method) {
+        throw new UnsupportedOperationException("Unexpected method call: " + method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, MethodCall call) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "toString" -> type.getSimpleName() + "Proxy";
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            default -> unsupported(method.getName());
+                        };
+                    }
+                    return call.invoke(method.getName(), args == null ? new Object[0] : args);
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface MethodCall {
+        Object invoke(String method, Object[] args);
+    }
+}
@@ -0,0 +1,123 @@
+package com.daniel.backend.file.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileAccessTrackerTest {
+
+    private final List<Object[]> flushedRows = new ArrayList<>();
+    private final List<Long> warmedFileIds = new ArrayList<>();
+    private boolean failWrites;
+
+    private FileAccessTracker tracker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tracker = new FileAccessTracker();
+        setField(tracker, "jdbcTemplate", new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (failWrites) {
+                    throw new CannotGetJdbcConnectionException("pool exhausted");
+                }
+                flushedRows.addAll(batchArgs);
+                return new int[batchArgs.size()];
+            }
+        });
+        setField(tracker, "transactionManager", new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        });
+        setField(tracker, "storageTieringService", new StorageTieringService() {
+            @Override
+            public void warm(Collection<Long> fileIds) {
+                warmedFileIds.addAll(fileIds);
+            }
+        });
+    }
+
+    @Test
+    void flushWritesOneRowPerFileWithAccumulatedHitsAndWarmsThem() {
+        tracker.recordAccess(10L);
+        tracker.recordAccess(10L);
+        tracker.recordAccess(11L);
+        tracker.recordAccess(null);
+
+        tracker.flush();
+
+        flushedRows.sort(Comparator.comparingLong(row -> (Long) row[3]));
+        assertEquals(2, flushedRows.size());
+        assertEquals(2L, flushedRows.get(0)[0]);
+        assertEquals(10L, flushedRows.get(0)[3]);
+        assertEquals(1L, flushedRows.get(1)[0]);
+        assertEquals(11L, flushedRows.get(1)[3]);
+        assertEquals(List.of(10L, 11L), warmedFileIds.stream().sorted().toList());
+    }
+
+    @Test
+    void flushHandsOverDeltasSoTheNextFlushOnlySeesNewHits() {
+        tracker.recordAccess(10L);
+        tracker.flush();
+        flushedRows.clear();
+        warmedFileIds.clear();
+
+        tracker.flush();
+        assertTrue(flushedRows.isEmpty());
+        assertTrue(warmedFileIds.isEmpty());
+
+        tracker.recordAccess(10L);
+        tracker.flush();
+        assertEquals(1, flushedRows.size());
+        assertEquals(1L, flushedRows.get(0)[0]);
+    }
+
+    @Test
+    void failedFlushKeepsTheHitsForTheNextOne() {
+        tracker.recordAccess(10L);
+        tracker.recordAccess(10L);
+        failWrites = true;
+
+        tracker.flush();
+        assertTrue(flushedRows.isEmpty());
+        assertTrue(warmedFileIds.isEmpty());
+
+        failWrites = false;
+        tracker.recordAccess(10L);
+        tracker.flush();
+
+        assertEquals(1, flushedRows.size());
+        assertEquals(3L, flushedRows.get(0)[0]);
+        assertEquals(List.of(10L), warmedFileIds);
+    }
+
+    private void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
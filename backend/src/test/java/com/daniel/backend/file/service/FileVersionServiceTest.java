@@ -0,0 +1,281 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.audit.service.AuditLogService;
+import com.daniel.backend.auth.entity.Users;
+import com.daniel.backend.file.dto.FileVersionDto;
+import com.daniel.backend.file.entity.FileVersion;
+import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.repo.FileVersionRepo;
+import com.daniel.backend.sharing.repository.FilePermissionRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.StorageClass;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.AccessDeniedException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileVersionServiceTest {
+
+    private final Map<Long, Files> files = new HashMap<>();
+    private final List<FileVersion> versions = new ArrayList<>();
+    private final List<String> calls = new ArrayList<>();
+    private final List<String> deletedKeys = new ArrayList<>();
+    private final List<String> auditActions = new ArrayList<>();
+    private final Map<String, StorageClass> objectStorageClasses = new HashMap<>();
+
+    private FileVersionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new FileVersionService();
+        setField(service, "bucketName", "bucket");
+        setField(service, "maxRetainedVersions", 3);
+        setField(service, "fileRepo", fileRepo());
+        setField(service, "fileVersionRepo", fileVersionRepo());
+        setField(service, "s3Client", s3Client());
+        setField(service, "auditLogService", auditLogService());
+        setField(service, "fileAccessService", new FileAccessService(fileRepo(), filePermissionRepo(), 100, 60));
+    }
+
+    @Test
+    void addVersionLocksTheHeadBeforeNumberingAndBackfillsVersionOneForLegacyFiles() {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+
+        FileVersion added = service.addVersion(head, "report-v2.pdf", metadata(200L));
+
+        assertEquals(2, added.getVersionNumber());
+        assertEquals(List.of(1, 2), versions.stream().map(FileVersion::getVersionNumber).toList());
+        assertEquals("report-v1.pdf", versions.get(0).getS3Key());
+        assertEquals("report-v2.pdf", head.getS3Key());
+        assertEquals(200L, head.getSize());
+        assertEquals(added.getId(), head.getCurrentVersionId());
+        assertEquals("findByIdForUpdate", calls.get(0));
+        assertTrue(calls.indexOf("findTopByFileIdOrderByVersionNumberDesc") > 0);
+    }
+
+    @Test
+    void addVersionPrunesVersionsBeyondRetentionAndDeletesTheirObjects() {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+        service.recordInitialVersion(head);
+        service.addVersion(head, "report-v2.pdf", metadata(200L));
+        service.addVersion(head, "report-v3.pdf", metadata(300L));
+
+        service.addVersion(head, "report-v4.pdf", metadata(400L));
+
+        assertEquals(List.of(2, 3, 4), versions.stream().map(FileVersion::getVersionNumber).toList());
+        assertEquals(List.of("report-v1.pdf"), deletedKeys);
+    }
+
+    @Test
+    void listVersionsMarksTheCurrentVersionAndIsOwnerOnly() throws Exception {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+        service.recordInitialVersion(head);
+        service.addVersion(head, "report-v2.pdf", metadata(200L));
+
+        List<FileVersionDto> listed = service.listVersions("report-v2.pdf", "owner@example.com");
+
+        assertEquals(List.of(2, 1), listed.stream().map(FileVersionDto::getVersionNumber).toList());
+        assertEquals(List.of(true, false), listed.stream().map(FileVersionDto::isCurrent).toList());
+        assertThrows(AccessDeniedException.class, () -> service.listVersions("report-v2.pdf", "stranger@example.com"));
+    }
+
+    @Test
+    void restoreVersionMakesTheOldVersionHeadUnderLockAndAudits() throws Exception {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+        service.recordInitialVersion(head);
+        FileVersion original = versions.get(0);
+        service.addVersion(head, "report-v2.pdf", metadata(200L));
+        calls.clear();
+
+        String result = service.restoreVersion(original.getId(), "owner@example.com");
+
+        assertEquals("Restored version 1: report-v1.pdf", result);
+        assertEquals("report-v1.pdf", head.getS3Key());
+        assertEquals(100L, head.getSize());
+        assertEquals(original.getId(), head.getCurrentVersionId());
+        assertEquals("STANDARD", head.getStorageClass());
+        assertTrue(calls.contains("findByIdForUpdate"));
+        assertEquals(List.of("FILE_VERSION_RESTORE"), auditActions);
+    }
+
+    @Test
+    void restoreVersionKeepsTheStorageClassTheOldObjectWasTieredTo() throws Exception {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+        service.recordInitialVersion(head);
+        FileVersion original = versions.get(0);
+        service.addVersion(head, "report-v2.pdf", metadata(200L));
+        assertEquals("STANDARD", head.getStorageClass());
+        objectStorageClasses.put("report-v1.pdf", StorageClass.STANDARD_IA);
+
+        service.restoreVersion(original.getId(), "owner@example.com");
+
+        assertEquals("report-v1.pdf", head.getS3Key());
+        assertEquals("STANDARD_IA", head.getStorageClass());
+    }
+
+    @Test
+    void restoreVersionRejectsUsersWhoDoNotOwnTheFile() {
+        Files head = file(10L, "report-v1.pdf");
+        files.put(head.getId(), head);
+        service.recordInitialVersion(head);
+        service.addVersion(head, "report-v2.pdf", metadata(200L));
+        Long originalId = versions.get(0).getId();
+
+        assertThrows(AccessDeniedException.class, () -> service.restoreVersion(originalId, "stranger@example.com"));
+        assertEquals("report-v2.pdf", head.getS3Key());
+        assertTrue(auditActions.isEmpty());
+    }
+
+    private FileRepo fileRepo() {
+        return proxy(FileRepo.class, (method, args) -> {
+            calls.add(method);
+            return switch (method) {
+                case "findById", "findByIdForUpdate" -> Optional.ofNullable(files.get((Long) args[0]));
+                case "findByS3Key" -> files.values().stream()
+                        .filter(file -> file.getS3Key().equals(args[0]))
+                        .findFirst();
+                case "findOwnerEmailById" -> Optional.ofNullable(files.get((Long) args[0]))
+                        .map(file -> file.getOwner().getEmail());
+                case "save" -> args[0];
+                default -> unsupported(method);
+            };
+        });
+    }
+
+    private FileVersionRepo fileVersionRepo() {
+        return proxy(FileVersionRepo.class, (method, args) -> {
+            calls.add(method);
+            return switch (method) {
+                case "findById" -> versions.stream()
+                        .filter(version -> version.getId().equals(args[0]))
+                        .findFirst();
+                case "findTopByFileIdOrderByVersionNumberDesc" -> versionsOf((Long) args[0]).stream().findFirst();
+                case "findByFileIdOrderByVersionNumberDesc" -> versionsOf((Long) args[0]);
+                case "save" -> {
+                    FileVersion version = (FileVersion) args[0];
+                    if (version.getId() == null) {
+                        version.setId(100L + versions.size() + deletedKeys.size());
+                        versions.add(version);
+                    }
+                    yield version;
+                }
+                case "deleteAll" -> {
+                    versions.removeAll((List<?>) args[0]);
+                    yield null;
+                }
+                default -> unsupported(method);
+            };
+        });
+    }
+
+    private List<FileVersion> versionsOf(Long fileId) {
+        return versions.stream()
+                .filter(version -> version.getFileId().equals(fileId))
+                .sorted(Comparator.comparingInt(FileVersion::getVersionNumber).reversed())
+                .toList();
+    }
+
+    private FilePermissionRepo filePermissionRepo() {
+        return proxy(FilePermissionRepo.class, (method, args) -> switch (method) {
+            case "existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus" -> false;
+            default -> unsupported(method);
+        });
+    }
+
+    private S3Client s3Client() {
+        return proxy(S3Client.class, (method, args) -> switch (method) {
+            case "deleteObject" -> {
+                deletedKeys.add(((DeleteObjectRequest) args[0]).key());
+                yield null;
+            }
+            case "headObject" -> HeadObjectResponse.builder()
+                    .storageClass(objectStorageClasses.get(((HeadObjectRequest) args[0]).key()))
+                    .build();
+            default -> unsupported(method);
+        });
+    }
+
+    private AuditLogService auditLogService() {
+        return new AuditLogService(null, null) {
+            @Override
+            public void log(String action, String performedBy, Files file, String description) {
+                auditActions.add(action);
+            }
+        };
+    }
+
+    private UploadInspector.UploadMetadata metadata(long size) {
+        return new UploadInspector.UploadMetadata(size, "sha256", "crc32c", "application/pdf");
+    }
+
+    private Files file(Long id, String s3Key) {
+        Users owner = new Users();
+        owner.setId(1L);
+        owner.setEmail("owner@example.com");
+        return Files.builder()
+                .id(id)
+                .owner(owner)
+                .displayName("report.pdf")
+                .s3Key(s3Key)
+                .size(100L)
+                .contentType("application/pdf")
+                .uploadedAt(LocalDateTime.now().minusDays(1))
+                .build();
+    }
+
+    private void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private Object unsupported(String method) {
+        throw new UnsupportedOperationException("Unexpected method call: " + method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, MethodCall call) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "toString" -> type.getSimpleName() + "Proxy";
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            default -> unsupported(method.getName());
+                        };
+                    }
+                    return call.invoke(method.getName(), args == null ? new Object[0] : args);
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface MethodCall {
+        Object invoke(String method, Object[] args);
+    }
+}
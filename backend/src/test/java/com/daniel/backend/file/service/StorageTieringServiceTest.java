@@ -0,0 +1,153 @@
+package com.daniel.backend.file.service;
+
+import com.daniel.backend.file.entity.Files;
+import com.daniel.backend.file.repo.FileRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageTieringServiceTest {
+
+    private final Map<Long, Files> files = new LinkedHashMap<>();
+    private final List<String> storageClassUpdates = new ArrayList<>();
+    private final List<String> copiedKeys = new ArrayList<>();
+    private final Set<String> failingKeys = new HashSet<>();
+
+    private StorageTieringService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new StorageTieringService();
+        setField(service, "bucketName", "bucket");
+        setField(service, "coldAfterDays", 30);
+        setField(service, "coldStorageClass", "STANDARD_IA");
+        setField(service, "minSizeBytes", 128 * 1024L);
+        setField(service, "fileRepo", fileRepo());
+        setField(service, "s3Client", s3Client());
+    }
+
+    @Test
+    void tierColdFilesCopiesEachCandidateAndUpdatesOnlyItsStorageClass() {
+        files.put(10L, file(10L, "a.bin", "STANDARD"));
+        files.put(11L, file(11L, "b.bin", null));
+
+        service.tierColdFiles();
+
+        assertEquals(List.of("a.bin", "b.bin"), copiedKeys);
+        assertEquals(List.of("10:a.bin:STANDARD_IA", "11:b.bin:STANDARD_IA"), storageClassUpdates);
+    }
+
+    @Test
+    void failedCopyLeavesTheStorageClassUntouched() {
+        files.put(10L, file(10L, "a.bin", "STANDARD"));
+        failingKeys.add("a.bin");
+
+        service.tierColdFiles();
+
+        assertTrue(storageClassUpdates.isEmpty());
+    }
+
+    @Test
+    void warmOnlyMovesFilesThatAreInAColdClass() {
+        files.put(10L, file(10L, "a.bin", "STANDARD_IA"));
+        files.put(11L, file(11L, "b.bin", "STANDARD"));
+        files.put(12L, file(12L, "c.bin", null));
+
+        service.warm(List.of(10L, 11L, 12L));
+
+        assertEquals(List.of("a.bin"), copiedKeys);
+        assertEquals(List.of("10:a.bin:STANDARD"), storageClassUpdates);
+    }
+
+    private FileRepo fileRepo() {
+        return proxy(FileRepo.class, (method, args) -> switch (method) {
+            case "findTieringCandidates" -> files.values().stream()
+                    .filter(file -> file.getId() > (Long) args[0])
+                    .filter(file -> file.getStorageClass() == null || file.getStorageClass().equals(args[1]))
+                    .toList();
+            case "findAllById" -> files.values().stream()
+                    .filter(file -> ((Collection<?>) args[0]).contains(file.getId()))
+                    .toList();
+            case "updateStorageClass" -> {
+                storageClassUpdates.add(args[0] + ":" + args[1] + ":" + args[2]);
+                yield 1;
+            }
+            default -> unsupported(method);
+        });
+    }
+
+    private S3Client s3Client() {
+        return proxy(S3Client.class, (method, args) -> switch (method) {
+            case "copyObject" -> {
+                String key = ((CopyObjectRequest) args[0]).sourceKey();
+                if (failingKeys.contains(key)) {
+                    throw S3Exception.builder().message("copy failed").build();
+                }
+                copiedKeys.add(key);
+                yield CopyObjectResponse.builder().build();
+            }
+            default -> unsupported(method);
+        });
+    }
+
+    private Files file(Long id, String s3Key, String storageClass) {
+        return Files.builder()
+                .id(id)
+                .s3Key(s3Key)
+                .size(1024 * 1024L)
+                .storageClass(storageClass)
+                .uploadedAt(LocalDateTime.now().minusDays(60))
+                .build();
+    }
+
+    private void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private Object unsupported(String method) {
+        throw new UnsupportedOperationException("Unexpected method call: " + method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, MethodCall call) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "toString" -> type.getSimpleName() + "Proxy";
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            default -> unsupported(method.getName());
+                        };
+                    }
+                    return call.invoke(method.getName(), args == null ? new Object[0] : args);
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface MethodCall {
+        Object invoke(String method, Object[] args);
+    }
+}
@@ -0,0 +1,86 @@
+package com.daniel.backend.file.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tryAcquireRejectsUserOverPerUserLimitWithoutAffectingOthers() {
+        TransferLimiter limiter = new TransferLimiter(2, 10, meterRegistry);
+
+        assertNotNull(limiter.tryAcquire("alice@example.com"));
+        assertNotNull(limiter.tryAcquire("alice@example.com"));
+        assertNull(limiter.tryAcquire("alice@example.com"));
+        assertNotNull(limiter.tryAcquire("bob@example.com"));
+
+        assertEquals(2, limiter.activeTransfers("alice@example.com"));
+        assertEquals(3.0, meterRegistry.get("transfers.active").gauge().value());
+        assertEquals(1.0, meterRegistry.get("transfers.rejected").tag("limit", "user").counter().count());
+    }
+
+    @Test
+    void tryAcquireRejectsEveryoneOnceGlobalLimitIsReached() {
+        TransferLimiter limiter = new TransferLimiter(5, 2, meterRegistry);
+
+        TransferLimiter.Permit first = limiter.tryAcquire("alice@example.com");
+        assertNotNull(limiter.tryAcquire("bob@example.com"));
+        assertNull(limiter.tryAcquire("carol@example.com"));
+
+        first.release();
+
+        assertNotNull(limiter.tryAcquire("carol@example.com"));
+        assertEquals(0, limiter.activeTransfers("alice@example.com"));
+    }
+
+    @Test
+    void releaseIsIdempotent() {
+        TransferLimiter limiter = new TransferLimiter(1, 1, meterRegistry);
+
+        TransferLimiter.Permit permit = limiter.tryAcquire("alice@example.com");
+        permit.release();
+        permit.release();
+
+        assertEquals(0.0, meterRegistry.get("transfers.active").gauge().value());
+        assertNotNull(limiter.tryAcquire("alice@example.com"));
+    }
+
+    @Test
+    void sweepDropsOnlyIdleUsersAndKeepsLimitsForNewTransfers() {
+        TransferLimiter limiter = new TransferLimiter(2, 10, meterRegistry);
+
+        limiter.tryAcquire("alice@example.com");
+        limiter.tryAcquire("bob@example.com").release();
+
+        limiter.sweepIdleUsers();
+
+        assertEquals(1, limiter.activeTransfers("alice@example.com"));
+        assertEquals(0, limiter.activeTransfers("bob@example.com"));
+        assertEquals(1.0, meterRegistry.get("transfers.active.users").gauge().value());
+
+        assertNotNull(limiter.tryAcquire("bob@example.com"));
+        assertNotNull(limiter.tryAcquire("bob@example.com"));
+        assertNull(limiter.tryAcquire("bob@example.com"));
+        assertNotNull(limiter.tryAcquire("alice@example.com"));
+        assertNull(limiter.tryAcquire("alice@example.com"));
+    }
+
+    @Test
+    void noMetricIsTaggedWithUserEmails() {
+        TransferLimiter limiter = new TransferLimiter(5, 10, meterRegistry);
+
+        limiter.tryAcquire("alice@example.com");
+        limiter.sweepIdleUsers();
+
+        assertTrue(meterRegistry.getMeters().stream()
+                .flatMap(meter -> meter.getId().getTags().stream())
+                .noneMatch(tag -> tag.getValue().contains("@")));
+    }
+}
@@ -0,0 +1,87 @@
+package com.daniel.backend.file.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadInspectorTest {
+
+    private final UploadInspector inspector = new UploadInspector();
+
+    @Test
+    void completeReportsSizeChecksumsAndContentTypeOfStreamedBytes() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "notes.txt", "application/octet-stream", "hello world".getBytes(StandardCharsets.UTF_8));
+
+        UploadInspector.Inspection inspection = inspector.begin(file);
+        try (InputStream in = inspection.newStream()) {
+            in.readAllBytes();
+        }
+
+        UploadInspector.UploadMetadata metadata = inspection.complete();
+
+        assertEquals(11L, metadata.size());
+        assertEquals("uU0nuZNNPgilLlLX2n2r+sSE7+N6U4DukIj3rOLvzek=", metadata.checksumSha256());
+        assertEquals("yZRlqg==", metadata.checksumCrc32c());
+        assertEquals("text/plain", metadata.contentType());
+    }
+
+    @Test
+    void completeOnlyCountsTheLastStreamHandedOut() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "notes.txt", "text/plain", "hello world".getBytes(StandardCharsets.UTF_8));
+
+        UploadInspector.Inspection inspection = inspector.begin(file);
+        try (InputStream firstAttempt = inspection.newStream()) {
+            firstAttempt.readNBytes(5);
+        }
+        try (InputStream retry = inspection.newStream()) {
+            retry.readAllBytes();
+        }
+
+        UploadInspector.UploadMetadata metadata = inspection.complete();
+
+        assertEquals(11L, metadata.size());
+        assertEquals("yZRlqg==", metadata.checksumCrc32c());
+    }
+
+    @Test
+    void completeRequiresTheStreamToHaveBeenRead() {
+        MockMultipartFile file = new MockMultipartFile("file", "empty.bin", null, new byte[0]);
+
+        UploadInspector.Inspection inspection = inspector.begin(file);
+
+        assertThrows(IllegalStateException.class, inspection::complete);
+    }
+
+    @Test
+    void sniffContentTypePrefersMagicBytesOverFileName() {
+        byte[] pdf = "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("application/pdf", UploadInspector.sniffContentType(pdf, "invoice.txt", "text/plain"));
+    }
+
+    @Test
+    void sniffContentTypeUsesExtensionForZipContainers() {
+        byte[] zip = {'P', 'K', 0x03, 0x04, 0x14, 0x00};
+
+        assertEquals(
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                UploadInspector.sniffContentType(zip, "report.docx", null)
+        );
+        assertEquals("application/zip", UploadInspector.sniffContentType(zip, "archive", null));
+    }
+
+    @Test
+    void sniffContentTypeFallsBackToDeclaredTypeForUnknownBinaries() {
+        byte[] binary = {0x00, 0x01, 0x02, 0x03};
+
+        assertEquals("application/x-custom", UploadInspector.sniffContentType(binary, "blob", "application/x-custom"));
+        assertEquals("application/octet-stream", UploadInspector.sniffContentType(binary, "blob", null));
+    }
+}
@@ -0,0 +1,30 @@
+package com.daniel.backend.notification.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NotificationServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void subscribeClosesOldestStreamsBeyondPerUserLimitWithoutAffectingOthers() {
+        NotificationService service = new NotificationService(60_000, 16, 2, meterRegistry);
+
+        service.subscribe("alice@example.com");
+        service.subscribe("Alice@Example.com ");
+        service.subscribe("alice@example.com");
+        service.subscribe("bob@example.com");
+
+        assertEquals(2, service.connectionCount("alice@example.com"));
+        assertEquals(1, service.connectionCount("bob@example.com"));
+        assertEquals(3.0, meterRegistry.get("notifications.connections").gauge().value());
+
+        service.shutdown();
+
+        assertEquals(0, service.connectionCount("alice@example.com"));
+        assertEquals(0.0, meterRegistry.get("notifications.connections").gauge().value());
+    }
+}
@@ -1,13 +1,15 @@
 package com.daniel.backend.publicsharing.service;
 
-import com.daniel.backend.audit.repository.AuditLogRepo;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.auth.entity.Users;
 import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.service.FileAccessService;
 import com.daniel.backend.file.service.StorageService;
+import com.daniel.backend.publicsharing.dto.PublicLinkDto;
 import com.daniel.backend.publicsharing.entity.PublicFileAccessToken;
 import com.daniel.backend.publicsharing.repo.PublicFileAccessTokenRepo;
+import com.daniel.backend.sharing.repository.FilePermissionRepo;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,8 +43,9 @@ class PublicFileSharingServiceTest {
         service = new PublicFileSharingService();
         setField(service, "fileRepo", fileRepo());
         setField(service, "publicTokenRepo", tokenRepo());
-        setField(service, "storageService", new StorageService(null, null, null, auditLogService(), tokenRepo()));
+        setField(service, "storageService", new StorageService(null, null, null, auditLogService(), tokenRepo(), null, null, null, null, null, null));
         setField(service, "auditLogService", auditLogService());
+        setField(service, "fileAccessService", new FileAccessService(fileRepo(), filePermissionRepo(), 100, 60));
         setField(service, "maxPreviewSize", 5L * 1024L * 1024L);
     }
 
@@ -135,9 +138,38 @@ class PublicFileSharingServiceTest {
         assertTrue(auditActions.isEmpty());
     }
 
+    @Test
+    void getActiveLinksByOwnerNestsTheFileFieldsTheLinksDialogReads() {
+        Users owner = user("owner@example.com");
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        tokens.add(token("abc", file(10L, owner, 1024L), expiresAt, true));
+
+        List<PublicLinkDto> links = service.getActiveLinksByOwner(owner.getEmail());
+
+        assertEquals(1, links.size());
+        assertEquals("abc", links.get(0).getToken());
+        assertEquals(expiresAt, links.get(0).getExpiresAt());
+        assertEquals(10L, links.get(0).getFile().getId());
+        assertEquals(1024L, links.get(0).getFile().getSize());
+        assertNotNull(links.get(0).getFile().getDisplayName());
+    }
+
     private FileRepo fileRepo() {
         return proxy(FileRepo.class, (method, args) -> switch (method) {
             case "findById" -> Optional.ofNullable(files.get((Long) args[0]));
+            case "findOwnerEmailById" -> Optional.ofNullable(files.get((Long) args[0]))
+                    .or(() -> tokens.stream()
+                            .map(PublicFileAccessToken::getFile)
+                            .filter(file -> file.getId().equals(args[0]))
+                            .findFirst())
+                    .map(file -> file.getOwner().getEmail());
+            default -> unsupported(method);
+        });
+    }
+
+    private FilePermissionRepo filePermissionRepo() {
+        return proxy(FilePermissionRepo.class, (method, args) -> switch (method) {
+            case "existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus" -> false;
             default -> unsupported(method);
         });
     }
@@ -164,13 +196,7 @@ class PublicFileSharingServiceTest {
     }
 
     private AuditLogService auditLogService() {
-        AuditLogRepo repo = proxy(AuditLogRepo.class, (method, args) -> switch (method) {
-            case "save" -> args[0];
-            case "countByPerformedBy" -> 0L;
-            default -> unsupported(method);
-        });
-
-        return new AuditLogService(repo) {
+        return new AuditLogService(null, null) {
             @Override
             public void log(String action, String performedBy, Files file, String description) {
                 auditActions.add(action);
@@ -1,16 +1,23 @@
 package com.daniel.backend.sharing.service;
 
-import com.daniel.backend.audit.repository.AuditLogRepo;
+import com.daniel.backend.audit.entity.AuditLog;
 import com.daniel.backend.audit.service.AuditLogService;
 import com.daniel.backend.auth.entity.Users;
 import com.daniel.backend.auth.repository.UserRepo;
 import com.daniel.backend.file.entity.Files;
 import com.daniel.backend.file.repo.FileRepo;
+import com.daniel.backend.file.service.FileAccessService;
+import com.daniel.backend.notification.service.NotificationService;
+import com.daniel.backend.sharing.dto.BulkShareRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseRequestDto;
+import com.daniel.backend.sharing.dto.BulkShareResponseResultDto;
+import com.daniel.backend.sharing.dto.BulkShareResultDto;
 import com.daniel.backend.sharing.dto.ShareFileRequestDto;
 import com.daniel.backend.sharing.dto.ShareStatus;
 import com.daniel.backend.sharing.dto.SharedFileDto;
 import com.daniel.backend.sharing.entity.FilePermission;
 import com.daniel.backend.sharing.repository.FilePermissionRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -19,6 +26,7 @@ import java.lang.reflect.Proxy;
 import java.nio.file.AccessDeniedException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +49,7 @@ class FileSharingServiceTest {
     private final List<String> auditActions = new ArrayList<>();
 
     private FileSharingService service;
+    private FileAccessService fileAccessService;
 
     @BeforeEach
     void setUp() throws Exception {
@@ -49,6 +58,10 @@ class FileSharingServiceTest {
         setField(service, "userRepo", userRepo());
         setField(service, "filePermissionRepo", filePermissionRepo());
         setField(service, "auditLogService", auditLogService());
+        fileAccessService = new FileAccessService(fileRepo(), filePermissionRepo(), 100, 60);
+        setField(service, "fileAccessService", fileAccessService);
+        setField(service, "notificationService", new NotificationService(60_000, 16, 5, new SimpleMeterRegistry()));
+        setField(service, "maxBulkItems", 100);
     }
 
     @Test
@@ -135,6 +148,60 @@ class FileSharingServiceTest {
         assertEquals(List.of("RESHARE_FILE"), auditActions);
     }
 
+    @Test
+    void shareFilesReportsAResultForEveryFileAndRecipientPair() {
+        Users owner = user(1L, "owner@example.com");
+        Users newRecipient = user(2L, "new@example.com");
+        Users formerRecipient = user(3L, "former@example.com");
+        addUsers(owner, newRecipient, formerRecipient);
+        Files file = file(10L, owner);
+        files.put(file.getId(), file);
+        FilePermission declined = permission(20L, file, formerRecipient, ShareStatus.DECLINED, "Old");
+        permissions.add(declined);
+
+        BulkShareRequestDto request = new BulkShareRequestDto();
+        request.setFileIds(List.of(10L, 99L));
+        request.setTargetUserEmails(List.of("new@example.com", "former@example.com", "missing@example.com"));
+        request.setMessage("Team files");
+
+        List<BulkShareResultDto> results = service.shareFiles(request, owner.getEmail());
+
+        assertEquals(6, results.size());
+        assertEquals(List.of(true, true, false, false, false, false),
+                results.stream().map(BulkShareResultDto::isSuccess).toList());
+        assertEquals("Recipient not found", results.get(2).getDetail());
+        assertEquals("File not found", results.get(3).getDetail());
+        assertEquals(declined.getId(), results.get(1).getPermissionId());
+        assertNotNull(results.get(0).getPermissionId());
+
+        assertEquals(2, permissions.size());
+        assertEquals(ShareStatus.PENDING, declined.getStatus());
+        assertEquals("Team files", declined.getMessage());
+        assertEquals(List.of("SHARE_FILE", "RESHARE_FILE"), auditActions);
+    }
+
+    @Test
+    void acceptSharesOnlyAcceptsPermissionsOfTheCurrentUser() {
+        Users owner = user(1L, "owner@example.com");
+        Users recipient = user(2L, "recipient@example.com");
+        Users stranger = user(3L, "stranger@example.com");
+        FilePermission own = permission(20L, file(10L, owner), recipient, ShareStatus.PENDING, null);
+        FilePermission foreign = permission(21L, file(11L, owner), stranger, ShareStatus.PENDING, null);
+        permissions.add(own);
+        permissions.add(foreign);
+
+        BulkShareResponseRequestDto request = new BulkShareResponseRequestDto();
+        request.setPermissionIds(List.of(20L, 21L, 22L));
+
+        List<BulkShareResponseResultDto> results = service.acceptShares(request, recipient.getEmail());
+
+        assertEquals(List.of(true, false, false), results.stream().map(BulkShareResponseResultDto::isSuccess).toList());
+        assertEquals("Permission not found", results.get(2).getDetail());
+        assertEquals(ShareStatus.ACCEPTED, own.getStatus());
+        assertEquals(ShareStatus.PENDING, foreign.getStatus());
+        assertEquals(List.of("ACCEPT_SHARE", "SHARE_ACCEPTED"), auditActions);
+    }
+
     @Test
     void getFilesSharedWithUserReturnsOnlyPendingAndAcceptedShares() {
         Users owner = user(1L, "owner@example.com");
@@ -190,6 +257,42 @@ class FileSharingServiceTest {
         assertEquals(List.of("ACCEPT_SHARE", "SHARE_ACCEPTED"), auditActions);
     }
 
+    @Test
+    void acceptAndRevokeRefreshCachedAccessOfTheRecipient() throws Exception {
+        Users owner = user(1L, "owner@example.com");
+        Users recipient = user(2L, "recipient@example.com");
+        Files file = file(10L, owner);
+        files.put(file.getId(), file);
+        FilePermission permission = permission(20L, file, recipient, ShareStatus.PENDING, null);
+        permissions.add(permission);
+
+        assertFalse(fileAccessService.canRead(recipient.getEmail(), file.getId()));
+
+        service.acceptShare(permission.getId(), recipient.getEmail());
+        assertTrue(fileAccessService.canRead(recipient.getEmail(), file.getId()));
+        assertFalse(fileAccessService.canWrite(recipient.getEmail(), file.getId()));
+
+        service.revokeAccess(file.getId(), recipient.getEmail(), owner.getEmail());
+        assertFalse(fileAccessService.canRead(recipient.getEmail(), file.getId()));
+    }
+
+    @Test
+    void shareFileRejectsUsersWhoDoNotOwnTheFile() {
+        Users owner = user(1L, "owner@example.com");
+        Users recipient = user(2L, "recipient@example.com");
+        Users stranger = user(3L, "stranger@example.com");
+        Files file = file(10L, owner);
+        addUsers(owner, recipient, stranger);
+        files.put(file.getId(), file);
+
+        assertThrows(
+                AccessDeniedException.class,
+                () -> service.shareFile(shareRequest(file.getId(), recipient.getEmail(), null), stranger.getEmail())
+        );
+
+        assertTrue(permissions.isEmpty());
+    }
+
     @Test
     void revokeAccessRequiresOwnerEmailIgnoringCaseAndWhitespace() throws Exception {
         Users owner = user(1L, "owner@example.com");
@@ -240,7 +343,13 @@ class FileSharingServiceTest {
     private FileRepo fileRepo() {
         return proxy(FileRepo.class, (method, args) -> switch (method) {
             case "findById" -> Optional.ofNullable(files.get((Long) args[0]));
+            case "findOwnerEmailById" -> Optional.ofNullable(files.get((Long) args[0]))
+                    .map(file -> file.getOwner().getEmail());
             case "findAll" -> new ArrayList<>(files.values());
+            case "findAllByIdInAndOwnerEmail" -> files.values().stream()
+                    .filter(file -> ((Collection<?>) args[0]).contains(file.getId()))
+                    .filter(file -> file.getOwner().getEmail().equals(args[1]))
+                    .toList();
             case "save" -> {
                 Files file = (Files) args[0];
                 files.put(file.getId(), file);
@@ -254,6 +363,10 @@ class FileSharingServiceTest {
         return proxy(UserRepo.class, (method, args) -> switch (method) {
             case "findByEmail" -> Optional.ofNullable(usersByEmail.get((String) args[0]));
             case "findById" -> Optional.ofNullable(usersById.get((Long) args[0]));
+            case "findAllByEmailIn" -> ((Collection<?>) args[0]).stream()
+                    .map(usersByEmail::get)
+                    .filter(user -> user != null)
+                    .toList();
             default -> unsupported(method);
         });
     }
@@ -263,8 +376,20 @@ class FileSharingServiceTest {
             case "findById" -> permissions.stream()
                     .filter(permission -> permission.getId().equals((Long) args[0]))
                     .findFirst();
-            case "findBySharedWithEmail" -> permissions.stream()
+            case "findSharedFilesByRecipient" -> permissions.stream()
                     .filter(permission -> permission.getSharedWith().getEmail().equals(args[0]))
+                    .filter(permission -> ((Collection<?>) args[1]).contains(permission.getStatus()))
+                    .map(permission -> new SharedFileDto(
+                            permission.getId(),
+                            permission.getFile().getId(),
+                            permission.getFile().getDisplayName(),
+                            permission.getFile().getOwner().getEmail(),
+                            permission.getFile().getS3Key(),
+                            permission.getMessage(),
+                            permission.getSharedAt(),
+                            permission.getStatus(),
+                            permission.getStatusChangedAt()
+                    ))
                     .toList();
             case "findByFileId" -> permissions.stream()
                     .filter(permission -> permission.getFile().getId().equals((Long) args[0]))
@@ -273,6 +398,29 @@ class FileSharingServiceTest {
                     .filter(permission -> permission.getFile().getId().equals((Long) args[0]))
                     .filter(permission -> permission.getSharedWith().getEmail().equals(args[1]))
                     .toList();
+            case "existsByFileIdAndSharedWithEmailIgnoreCaseAndStatus" -> permissions.stream()
+                    .filter(permission -> permission.getFile().getId().equals((Long) args[0]))
+                    .filter(permission -> permission.getSharedWith().getEmail().equalsIgnoreCase((String) args[1]))
+                    .anyMatch(permission -> permission.getStatus() == args[2]);
+            case "findAllByFileIdsAndRecipientEmails" -> permissions.stream()
+                    .filter(permission -> ((Collection<?>) args[0]).contains(permission.getFile().getId()))
+                    .filter(permission -> ((Collection<?>) args[1]).contains(permission.getSharedWith().getEmail()))
+                    .toList();
+            case "findAllWithFileByIdIn" -> permissions.stream()
+                    .filter(permission -> ((Collection<?>) args[0]).contains(permission.getId()))
+                    .toList();
+            case "saveAll" -> {
+                for (Object item : (Iterable<?>) args[0]) {
+                    FilePermission permission = (FilePermission) item;
+                    if (permission.getId() == null) {
+                        permission.setId(100L + permissions.size());
+                    }
+                    if (!permissions.contains(permission)) {
+                        permissions.add(permission);
+                    }
+                }
+                yield args[0];
+            }
             case "findByFileAndSharedWith" -> permissions.stream()
                     .filter(permission -> permission.getFile() == args[0])
                     .filter(permission -> permission.getSharedWith() == args[1])
@@ -293,17 +441,16 @@ class FileSharingServiceTest {
     }
 
     private AuditLogService auditLogService() {
-        AuditLogRepo repo = proxy(AuditLogRepo.class, (method, args) -> switch (method) {
-            case "save" -> args[0];
-            case "countByPerformedBy" -> 0L;
-            default -> unsupported(method);
-        });
-
-        return new AuditLogService(repo) {
+        return new AuditLogService(null, null) {
             @Override
             public void log(String action, String performedBy, Files file, String description) {
                 auditActions.add(action);
             }
+
+            @Override
+            public void logAll(List<AuditLog> entries) {
+                entries.forEach(entry -> auditActions.add(entry.getAction()));
+            }
         };
     }
 
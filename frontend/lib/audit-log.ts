@@ -9,42 +9,27 @@ export interface AuditLog {
   fileDisplayName?: string
 }
 
-export async function fetchAllAuditLogs(): Promise<AuditLog[]> {
-
-  try {
-    const token = getAccessToken()
-    if (!token) {
-      throw new Error("Authentication required")
-    }
-
-    const response = await fetch(apiUrl("/activity/all"), {
-      method: "GET",
-      headers: {
-        Authorization: `Bearer ${token}`,
-        "Content-Type": "application/json",
-      },
-    })
-
-    if (!response.ok) {
-      throw new Error(`Failed to fetch audit logs: ${response.statusText}`)
-    }
+// The activity endpoints are paged; the cursor for the next page, if any, comes back in X-Next-Cursor.
+const NEXT_CURSOR_HEADER = "X-Next-Cursor"
+const PAGE_SIZE = 500
 
-    const logs: AuditLog[] = await response.json()
-    return logs
-  } catch (error) {
-    throw error
+async function fetchAllPages(path: string): Promise<AuditLog[]> {
+  const token = getAccessToken()
+  if (!token) {
+    throw new Error("Authentication required")
   }
-}
 
-export async function fetchAuditLogsByPeriod(days = 30): Promise<AuditLog[]> {
+  const logs: AuditLog[] = []
+  let cursor: string | null = null
 
-  try {
-    const token = getAccessToken()
-    if (!token) {
-      throw new Error("Authentication required")
+  do {
+    const params = new URLSearchParams({ limit: String(PAGE_SIZE) })
+    if (cursor) {
+      params.set("cursor", cursor)
     }
+    const separator = path.includes("?") ? "&" : "?"
 
-    const response = await fetch(apiUrl(`/activity?days=${days}`), {
+    const response = await fetch(apiUrl(`${path}${separator}${params}`), {
       method: "GET",
       headers: {
         Authorization: `Bearer ${token}`,
@@ -56,11 +41,20 @@ export async function fetchAuditLogsByPeriod(days = 30): Promise<AuditLog[]> {
       throw new Error(`Failed to fetch audit logs: ${response.statusText}`)
     }
 
-    const logs: AuditLog[] = await response.json()
-    return logs
-  } catch (error) {
-    throw error
-  }
+    const page: AuditLog[] = await response.json()
+    logs.push(...page)
+    cursor = response.headers.get(NEXT_CURSOR_HEADER)
+  } while (cursor)
+
+  return logs
+}
+
+export async function fetchAllAuditLogs(): Promise<AuditLog[]> {
+  return fetchAllPages("/activity/all")
+}
+
+export async function fetchAuditLogsByPeriod(days = 30): Promise<AuditLog[]> {
+  return fetchAllPages(`/activity?days=${days}`)
 }
 
 export const ACTIONS_WITH_FILE_DISPLAY = [
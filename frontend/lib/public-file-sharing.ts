@@ -11,11 +11,9 @@ export interface PublicFileAccessToken {
   file: {
     id: number
     displayName: string
-    s3Key: string
     size: number
   }
   expiresAt: string
-  active: boolean
 }
 
 